@@ -0,0 +1,182 @@
+package org.extension;
+
+import com.codahale.metrics.MetricRegistry;
+import com.hivemq.extension.sdk.api.interceptor.publish.parameter.PublishOutboundInput;
+import com.hivemq.extension.sdk.api.interceptor.publish.parameter.PublishOutboundOutput;
+import com.hivemq.extension.sdk.api.packets.publish.ModifiableOutboundPublish;
+import com.hivemq.extension.sdk.api.packets.publish.PublishPacket;
+import org.extension.cache.GenerationCache;
+import org.extension.config.PropertiesHolder;
+import org.extension.dao.CarGeneration;
+import org.extension.dao.CarInfoDAO;
+import org.extension.dao.CircuitBreaker;
+import org.extension.dao.GenerationLookupBatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole {@link FancyCarOutboundInterceptor#onOutboundPublish} on the broker thread, with the generations already
+ * in the cache. DB access is replaced by an in-memory {@link CarInfoDAO}.
+ * <p>
+ * The broker provided input and output are dynamic proxies, so their small dispatch overhead is part of the numbers.
+ * Cache misses are not covered, they are handed over to the extension executor which only exists inside HiveMQ.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FancyCarOutboundInterceptorBenchmark {
+
+    private static final String OLD_CAR = "12_old_34";
+    private static final String NEW_CAR = "56_new_78";
+
+    @Param({
+            "fancy-cars/" + OLD_CAR + "/temperature",
+            "fancy-cars/" + NEW_CAR + "/temperature",
+            "fancy-cars/" + OLD_CAR + "/command",
+            "fancy-cars/" + OLD_CAR + "/position"})
+    public String topic;
+
+    /**
+     * Number of additional characters in the payloads.
+     */
+    @Param({"0", "4096"})
+    public int padding;
+
+    /**
+     * Budget of the transformed payload cache, 0 disables it. The same payload is sent over and over again,
+     * so with the cache enabled every transformation is a hit.
+     */
+    @Param({"0", "4194304"})
+    public long payloadCacheMaxBytes;
+
+    private ScheduledExecutorService executor;
+    private FancyCarOutboundInterceptor interceptor;
+    private PublishOutboundInput input;
+    private PublishOutboundOutput output;
+
+    // written by the output, so the transformation can not be optimized away
+    private Object transformedPayload;
+    private long preventedDeliveries;
+
+    @Setup
+    public void setUp() {
+        final var propertiesHolder = PropertiesHolder.of(
+                Map.of("lookupBatchSize", "1", "payloadCacheMaxBytes", String.valueOf(payloadCacheMaxBytes)));
+
+        executor = Executors.newSingleThreadScheduledExecutor();
+        final var dao = new InMemoryCarInfoDAO(Map.of(OLD_CAR, CarGeneration.OLD, NEW_CAR, CarGeneration.NEW));
+        final var lookupBatcher = new GenerationLookupBatcher(dao, new CircuitBreaker(propertiesHolder),
+                propertiesHolder, executor);
+        final var cache = new GenerationCache(lookupBatcher, propertiesHolder, executor);
+        cache.getGeneration(OLD_CAR);
+        cache.getGeneration(NEW_CAR);
+
+        interceptor = new FancyCarOutboundInterceptor(cache, executor, propertiesHolder, new MetricRegistry());
+        input = publishInput(topic);
+
+        // the original payload is never modified, so the same output can be reused for every invocation
+        final var filler = "0".repeat(padding);
+        final String payload = topic.endsWith("/command")
+                ? "{\"command\": \"open\", \"subject\": \"door\", \"note\": \"" + filler + "\"}"
+                : "-12.5" + filler + "°C";
+        output = publishOutput(payload);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public PublishOutboundOutput onOutboundPublish() {
+        interceptor.onOutboundPublish(input, output);
+        return output;
+    }
+
+    private static PublishOutboundInput publishInput(String topic) {
+        final var packet = proxy(PublishPacket.class, (name, args) -> "getTopic".equals(name) ? topic : null);
+        return proxy(PublishOutboundInput.class, (name, args) -> "getPublishPacket".equals(name) ? packet : null);
+    }
+
+    private PublishOutboundOutput publishOutput(String payload) {
+        final var originalPayload = Optional.of(
+                ByteBuffer.wrap(payload.getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer());
+        final var packet = proxy(ModifiableOutboundPublish.class, (name, args) -> {
+            switch (name) {
+                case "getPayload":
+                    return originalPayload;
+                case "setPayload":
+                    transformedPayload = args[0];
+                    return null;
+                default:
+                    return null;
+            }
+        });
+        return proxy(PublishOutboundOutput.class, (name, args) -> {
+            switch (name) {
+                case "getPublishPacket":
+                    return packet;
+                case "preventPublishDelivery":
+                    preventedDeliveries++;
+                    return null;
+                default:
+                    throw new UnsupportedOperationException(name + " is not supported by the benchmark.");
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> handler.invoke(method.getName(), args));
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        Object invoke(String methodName, Object[] args);
+    }
+
+    private static class InMemoryCarInfoDAO extends CarInfoDAO {
+        private final Map<String, CarGeneration> generations;
+
+        private InMemoryCarInfoDAO(Map<String, CarGeneration> generations) {
+            this.generations = generations;
+        }
+
+        @Override
+        public CarGeneration findGeneration(String clientId) {
+            return generations.getOrDefault(clientId, CarGeneration.UNKNOWN);
+        }
+
+        @Override
+        public Map<String, CarGeneration> findGenerations(Collection<String> clientIds) {
+            final var result = new HashMap<String, CarGeneration>();
+            clientIds.forEach(clientId -> result.put(clientId, findGeneration(clientId)));
+            return result;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package org.extension.matcher;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TopicMatcherBenchmark {
+
+    @Param({
+            "fancy-cars/12_old_34/temperature",
+            "fancy-cars/56_new_78/command",
+            "fancy-cars/12_old_34/position",
+            "other-cars/12_old_34/temperature",
+            "fancy-cars//temperature"})
+    public String topic;
+
+    private final TopicMatcher topicMatcher = new TopicMatcher();
+
+    @Benchmark
+    public TopicMatch match() {
+        return topicMatcher.match(topic);
+    }
+}
@@ -0,0 +1,79 @@
+package org.extension.transformer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PayloadTransformerBenchmark {
+
+    /**
+     * Number of additional characters in the payloads, to see how the transformers scale with payload size.
+     */
+    @Param({"0", "256", "4096"})
+    public int padding;
+
+    private final PayloadTransformer deviceTransformer = new DevicePayloadTransformer();
+    private final PayloadTransformer backendTransformer = new BackendPayloadTransformer();
+    private final PayloadTransformer binaryTransformer = new BinaryTemperatureTransformer();
+
+    private ByteBuffer devicePayload;
+    private ByteBuffer backendPayload;
+    private ByteBuffer jsonTemperaturePayload;
+
+    @Setup
+    public void setUp() {
+        final var filler = "x".repeat(padding);
+        // the device transformer takes everything up to the degree sign as temperature value
+        devicePayload = payload("-12.5" + filler.replace('x', '0') + "°C");
+        backendPayload = payload("{\"command\": \"open\", \"subject\": \"door\", \"note\": \"" + filler + "\"}");
+        // what new generation cars send and the device transformer produces
+        jsonTemperaturePayload = payload("{ \"temperature\": \"-12.5" + filler.replace('x', '0')
+                + "\", \"unit\": \"celsius\" }");
+    }
+
+    @Benchmark
+    public Optional<ByteBuffer> devicePayload() {
+        return deviceTransformer.transformPayload(devicePayload);
+    }
+
+    /**
+     * Same input as {@link #devicePayload()}, encoded into 6 bytes instead of 45 or more bytes of JSON.
+     */
+    @Benchmark
+    public Optional<ByteBuffer> devicePayloadToBinary() {
+        return binaryTransformer.transformPayload(devicePayload);
+    }
+
+    @Benchmark
+    public Optional<ByteBuffer> jsonTemperaturePayloadToBinary() {
+        return binaryTransformer.transformPayload(jsonTemperaturePayload);
+    }
+
+    @Benchmark
+    public Optional<ByteBuffer> backendPayload() {
+        return backendTransformer.transformPayload(backendPayload);
+    }
+
+    private static ByteBuffer payload(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer();
+    }
+}
@@ -0,0 +1,277 @@
+package org.extension;
+
+import com.hivemq.client.mqtt.datatypes.MqttQos;
+import com.hivemq.client.mqtt.mqtt5.Mqtt5AsyncClient;
+import com.hivemq.client.mqtt.mqtt5.Mqtt5Client;
+import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5Publish;
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.testcontainer.core.MavenHiveMQExtensionSupplier;
+import com.hivemq.testcontainer.junit5.HiveMQTestContainerExtension;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.testcontainers.containers.Network;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+import org.testcontainers.utility.MountableFile;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives the extension in a HiveMQ container with a configurable load of temperature and command publishes.
+ * <p>
+ * Every car publishes its temperature, one backend client sends commands to the cars and all subscribers receive
+ * every publish. Publishes are sent at the target rate from one thread. Latency is measured from the time a publish
+ * was due, so a stalled broker is not hidden by a stalled sender. Configured with system properties:
+ * <ul>
+ *     <li>load.publishers: number of cars, half of them old generation (100)</li>
+ *     <li>load.subscribers: number of subscribers of all car topics (2)</li>
+ *     <li>load.rate: publishes per second over all cars (1000)</li>
+ *     <li>load.durationInSeconds: duration of the run (30)</li>
+ *     <li>load.commandPercent: share of command publishes (20)</li>
+ *     <li>load.qos: QoS of publishes and subscriptions (1)</li>
+ *     <li>load.maxDropRatio: share of deliveries which may be missing for the run to pass (0.001)</li>
+ * </ul>
+ * Latency histograms are printed and written to target/load-test.
+ */
+@Testcontainers
+class FancyCarLoadIT {
+
+    private static final int PUBLISHERS = Integer.getInteger("load.publishers", 100);
+    private static final int SUBSCRIBERS = Integer.getInteger("load.subscribers", 2);
+    private static final int RATE = Integer.getInteger("load.rate", 1000);
+    private static final int DURATION_IN_SECONDS = Integer.getInteger("load.durationInSeconds", 30);
+    private static final int COMMAND_PERCENT = Integer.getInteger("load.commandPercent", 20);
+    private static final MqttQos QOS = MqttQos.fromCode(Integer.getInteger("load.qos", 1));
+    private static final double MAX_DROP_RATIO = Double.parseDouble(System.getProperty("load.maxDropRatio", "0.001"));
+
+    private static final String SENT_AT = "sent-at";
+    private static final long DRAIN_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(30);
+    // idle Postgres backends report their table statistics after at most 10 seconds
+    private static final long STATS_FLUSH_MILLIS = TimeUnit.SECONDS.toMillis(11);
+    private static final Path REPORT_FOLDER = Path.of("target", "load-test");
+
+    private static final @NotNull Network network = Network.newNetwork();
+
+    @RegisterExtension
+    public final @NotNull HiveMQTestContainerExtension extension =
+            new HiveMQTestContainerExtension()
+                    .withFileInExtensionHomeFolder(MountableFile.forClasspathResource("app.properties"),
+                            "hiveMQ-fancy-cars-extension",
+                            "")
+                    .withExtension(MavenHiveMQExtensionSupplier.direct().get())
+                    .withNetwork(network);
+
+    @Container
+    private final PostgreSQLContainer<?> postgresqlContainer = new PostgreSQLContainer<>(
+            DockerImageName.parse("postgres").withTag("latest"))
+            .withNetwork(network)
+            .withNetworkAliases("postgres_host")
+            .withDatabaseName("hive_mq")
+            .withUsername("root")
+            .withPassword("root")
+            .withInitScript("init_db.sql");
+
+    private final Recorder temperatureLatency = new Recorder(3);
+    private final Recorder commandLatency = new Recorder(3);
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder failedPublishes = new LongAdder();
+
+    @Test
+    void publishes_are_delivered_under_load() throws Exception {
+        insertCars();
+        final var statsBefore = readGenerationTableStats();
+
+        final List<Mqtt5AsyncClient> clients = new ArrayList<>();
+        for (int i = 0; i < SUBSCRIBERS; i++) {
+            clients.add(connectSubscriber("load-subscriber-" + i));
+        }
+        final Mqtt5AsyncClient[] cars = new Mqtt5AsyncClient[PUBLISHERS];
+        for (int i = 0; i < PUBLISHERS; i++) {
+            cars[i] = connect(carId(i));
+            clients.add(cars[i]);
+        }
+        final Mqtt5AsyncClient backend = connect("load-backend");
+        clients.add(backend);
+
+        final long published = publishAtRate(cars, backend);
+        final long expected = (published - failedPublishes.sum()) * SUBSCRIBERS;
+        awaitDeliveries(expected);
+        for (Mqtt5AsyncClient client : clients) {
+            client.disconnect().join();
+        }
+
+        Thread.sleep(STATS_FLUSH_MILLIS);
+        final var statsAfter = readGenerationTableStats();
+
+        final long dropped = expected - delivered.sum();
+        try (var out = new PrintStream(Files.newOutputStream(createReportFolder().resolve("summary.txt")),
+                true, StandardCharsets.UTF_8)) {
+            for (PrintStream stream : List.of(System.out, out)) {
+                stream.printf("cars: %d, subscribers: %d, rate: %d/s, duration: %ds, qos: %d%n",
+                        PUBLISHERS, SUBSCRIBERS, RATE, DURATION_IN_SECONDS, QOS.getCode());
+                stream.printf("published: %d, failed: %d, expected deliveries: %d, delivered: %d, dropped: %d%n",
+                        published, failedPublishes.sum(), expected, delivered.sum(), dropped);
+                stream.printf("DB queries on generation table: %d, rows read: %d%n",
+                        statsAfter[0] - statsBefore[0], statsAfter[1] - statsBefore[1]);
+            }
+        }
+        report("temperature", temperatureLatency.getIntervalHistogram());
+        report("command", commandLatency.getIntervalHistogram());
+
+        assertTrue(delivered.sum() > 0);
+        assertTrue(dropped <= expected * MAX_DROP_RATIO,
+                "Dropped " + dropped + " of " + expected + " deliveries.");
+    }
+
+    private long publishAtRate(final Mqtt5AsyncClient[] cars, final Mqtt5AsyncClient backend) {
+        final long interval = TimeUnit.SECONDS.toNanos(1) / RATE;
+        final long count = (long) RATE * DURATION_IN_SECONDS;
+        final long start = System.nanoTime();
+
+        for (long n = 0; n < count; n++) {
+            final long due = start + n * interval;
+            long wait;
+            while ((wait = due - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            final int car = (int) (n % PUBLISHERS);
+            final boolean command = n % 100 < COMMAND_PERCENT;
+            final var client = command ? backend : cars[car];
+            client.publishWith()
+                    .topic("fancy-cars/" + carId(car) + (command ? "/command" : "/temperature"))
+                    .payload(payload(car, command))
+                    .qos(QOS)
+                    .userProperties().add(SENT_AT, Long.toString(due)).applyUserProperties()
+                    .send()
+                    .whenComplete((result, e) -> {
+                        if (e != null) {
+                            failedPublishes.increment();
+                        }
+                    });
+        }
+        return count;
+    }
+
+    private void awaitDeliveries(final long expected) throws InterruptedException {
+        final long deadline = System.nanoTime() + DRAIN_TIMEOUT_NANOS;
+        while (delivered.sum() < expected && System.nanoTime() - deadline < 0) {
+            Thread.sleep(100);
+        }
+    }
+
+    private Mqtt5AsyncClient connect(final String clientId) {
+        final var client = Mqtt5Client.builder()
+                .identifier(clientId)
+                .serverPort(extension.getMqttPort())
+                .buildAsync();
+        client.connect().join();
+        return client;
+    }
+
+    private Mqtt5AsyncClient connectSubscriber(final String clientId) {
+        final var client = connect(clientId);
+        client.subscribeWith()
+                .topicFilter("fancy-cars/+/+")
+                .qos(QOS)
+                .callback(this::onPublish)
+                .send()
+                .join();
+        return client;
+    }
+
+    private void onPublish(final Mqtt5Publish publish) {
+        final long received = System.nanoTime();
+        delivered.increment();
+        publish.getUserProperties().asList().stream()
+                .filter(property -> property.getName().toString().equals(SENT_AT))
+                .findFirst()
+                .ifPresent(property -> {
+                    final long latencyInMicros = TimeUnit.NANOSECONDS.toMicros(
+                            received - Long.parseLong(property.getValue().toString()));
+                    final var recorder = publish.getTopic().toString().endsWith("/command")
+                            ? commandLatency : temperatureLatency;
+                    recorder.recordValue(Math.max(0, latencyInMicros));
+                });
+    }
+
+    private void insertCars() throws SQLException {
+        try (var connection = DriverManager.getConnection(postgresqlContainer.getJdbcUrl(),
+                postgresqlContainer.getUsername(), postgresqlContainer.getPassword());
+             var statement = connection.prepareStatement("INSERT INTO generation(clientid, gen) VALUES (?, ?)")) {
+            for (int i = 0; i < PUBLISHERS; i++) {
+                statement.setString(1, carId(i));
+                statement.setInt(2, isOld(i) ? 1 : 2);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    /**
+     * @return number of scans of the generation table and number of rows read by them
+     */
+    private long[] readGenerationTableStats() throws SQLException {
+        try (var connection = DriverManager.getConnection(postgresqlContainer.getJdbcUrl(),
+                postgresqlContainer.getUsername(), postgresqlContainer.getPassword());
+             var statement = connection.createStatement();
+             var resultSet = statement.executeQuery("SELECT coalesce(seq_scan, 0) + coalesce(idx_scan, 0), "
+                     + "coalesce(seq_tup_read, 0) + coalesce(idx_tup_fetch, 0) "
+                     + "FROM pg_stat_user_tables WHERE relname = 'generation'")) {
+            resultSet.next();
+            return new long[]{resultSet.getLong(1), resultSet.getLong(2)};
+        }
+    }
+
+    private static void report(final String route, final Histogram histogram) throws IOException {
+        System.out.printf("%s latency in ms: p50 %.2f, p99 %.2f, p99.9 %.2f, max %.2f (%d samples)%n", route,
+                histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(99) / 1000.0,
+                histogram.getValueAtPercentile(99.9) / 1000.0, histogram.getMaxValue() / 1000.0,
+                histogram.getTotalCount());
+        try (var out = new PrintStream(Files.newOutputStream(createReportFolder().resolve(route + ".hgrm")),
+                true, StandardCharsets.UTF_8)) {
+            histogram.outputPercentileDistribution(out, 1000.0);
+        }
+    }
+
+    private static Path createReportFolder() throws IOException {
+        return Files.createDirectories(REPORT_FOLDER);
+    }
+
+    private static byte[] payload(final int car, final boolean command) {
+        final String payload;
+        if (command) {
+            payload = "{\"command\": \"open\", \"subject\": \"door\"}";
+        } else if (isOld(car)) {
+            payload = "15.0°C";
+        } else {
+            payload = "{ \"temperature\": \"15.0\", \"unit\": \"celsius\" }";
+        }
+        return payload.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static boolean isOld(final int car) {
+        return car % 2 == 0;
+    }
+
+    private static String carId(final int car) {
+        return "load-car-" + car;
+    }
+}
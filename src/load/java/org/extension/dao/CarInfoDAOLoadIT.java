@@ -0,0 +1,162 @@
+package org.extension.dao;
+
+import com.codahale.metrics.MetricRegistry;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.extension.config.PropertiesHolder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares generation lookups of {@link CarInfoDAO} with and without server side prepared statements,
+ * against a Postgres container. Configured with system properties:
+ * <ul>
+ *     <li>load.cars: number of cars in the generation table (100000)</li>
+ *     <li>load.threads: number of concurrent lookups, also used as pool size (8)</li>
+ *     <li>load.lookups: number of measured lookups per thread and configuration (20000)</li>
+ *     <li>load.batchSize: number of client ids per batch lookup (64)</li>
+ * </ul>
+ */
+@Testcontainers
+class CarInfoDAOLoadIT {
+
+    private static final int CARS = Integer.getInteger("load.cars", 100_000);
+    private static final int THREADS = Integer.getInteger("load.threads", 8);
+    private static final int LOOKUPS = Integer.getInteger("load.lookups", 20_000);
+    private static final int BATCH_SIZE = Integer.getInteger("load.batchSize", 64);
+
+    @Container
+    private static final PostgreSQLContainer<?> postgresqlContainer = new PostgreSQLContainer<>(
+            DockerImageName.parse("postgres").withTag("latest"))
+            .withDatabaseName("hive_mq")
+            .withUsername("root")
+            .withPassword("root")
+            .withInitScript("init_db.sql");
+
+    @TempDir
+    Path extensionHome;
+
+    @BeforeAll
+    static void insertCars() throws SQLException {
+        try (var connection = DriverManager.getConnection(postgresqlContainer.getJdbcUrl(),
+                postgresqlContainer.getUsername(), postgresqlContainer.getPassword());
+             var statement = connection.prepareStatement("INSERT INTO generation(clientid, gen) VALUES (?, ?)")) {
+            for (int i = 0; i < CARS; i++) {
+                statement.setString(1, carId(i));
+                statement.setInt(2, i % 2 == 0 ? 1 : 2);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    @Test
+    void single_lookups_with_and_without_prepared_statements() throws Exception {
+        run("single, not prepared", "prepareThreshold=0\n", false);
+        run("single, prepared", "prepareThreshold=1\n", false);
+    }
+
+    @Test
+    void batch_lookups_with_and_without_prepared_statements() throws Exception {
+        run("batch, not prepared", "prepareThreshold=0\n", true);
+        run("batch, prepared", "prepareThreshold=1\n", true);
+    }
+
+    private void run(final String name, final String properties, final boolean batch) throws Exception {
+        final var dao = createDao(properties);
+        try {
+            // warm up connections, driver statement cache and JIT
+            measure(dao, batch, LOOKUPS / 10);
+            final long start = System.nanoTime();
+            final var histogram = measure(dao, batch, LOOKUPS);
+            final double seconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.printf("%s: %.0f lookups/s, latency in µs p50 %d, p99 %d, p99.9 %d, max %d%n", name,
+                    histogram.getTotalCount() / seconds, histogram.getValueAtPercentile(50),
+                    histogram.getValueAtPercentile(99), histogram.getValueAtPercentile(99.9),
+                    histogram.getMaxValue());
+        } finally {
+            dao.shutDown();
+        }
+    }
+
+    private Histogram measure(final CarInfoDAO dao, final boolean batch, final int lookupsPerThread)
+            throws Exception {
+        final var recorder = new Recorder(3);
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            final List<Future<?>> threads = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                threads.add(executor.submit(() -> {
+                    for (int i = 0; i < lookupsPerThread; i++) {
+                        final long start = System.nanoTime();
+                        lookup(dao, batch);
+                        recorder.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> thread : threads) {
+                thread.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return recorder.getIntervalHistogram();
+    }
+
+    private static void lookup(final CarInfoDAO dao, final boolean batch) throws SQLException {
+        final var random = ThreadLocalRandom.current();
+        if (batch) {
+            final List<String> clientIds = new ArrayList<>(BATCH_SIZE);
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                clientIds.add(carId(random.nextInt(CARS)));
+            }
+            dao.findGenerations(clientIds);
+        } else {
+            final int car = random.nextInt(CARS);
+            assertEquals(car % 2 == 0 ? CarGeneration.OLD : CarGeneration.NEW, dao.findGeneration(carId(car)));
+        }
+    }
+
+    private CarInfoDAO createDao(final String properties) throws IOException {
+        Files.writeString(extensionHome.resolve("app.properties"),
+                "url=" + postgresqlContainer.getJdbcUrl() + "\n"
+                        + "driver=org.postgresql.Driver\n"
+                        + "user=" + postgresqlContainer.getUsername() + "\n"
+                        + "password=" + postgresqlContainer.getPassword() + "\n"
+                        + "poolSize=" + THREADS + "\n"
+                        + properties);
+        final var propertiesHolder = new PropertiesHolder();
+        if (!propertiesHolder.tryToLoadProperties(extensionHome.toFile())) {
+            throw new IllegalStateException("Load test configuration could not be loaded.");
+        }
+        final var dao = new CarInfoDAO();
+        dao.init(propertiesHolder, new MetricRegistry());
+        return dao;
+    }
+
+    private static String carId(final int car) {
+        return "load-car-" + car;
+    }
+}
@@ -0,0 +1,28 @@
+package org.extension;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.interceptor.publish.PublishInboundInterceptor;
+import com.hivemq.extension.sdk.api.interceptor.publish.parameter.PublishInboundInput;
+import com.hivemq.extension.sdk.api.interceptor.publish.parameter.PublishInboundOutput;
+
+/**
+ * Applies the transformation of {@link FancyCarOutboundInterceptor} once, when a publish arrives at the broker.
+ * <p>
+ * The generation is taken from the client id in the topic, so every subscriber receives the same payload anyway.
+ * Transforming inbound saves parsing and transforming the payload again for every subscriber and also stores retained
+ * messages transformed. Publishes sent by other extensions do not pass inbound interceptors and stay untransformed.
+ */
+public class FancyCarInboundInterceptor implements PublishInboundInterceptor {
+
+    private final FancyCarOutboundInterceptor transformation;
+
+    public FancyCarInboundInterceptor(FancyCarOutboundInterceptor transformation) {
+        this.transformation = transformation;
+    }
+
+    @Override
+    public void onInboundPublish(@NotNull PublishInboundInput input,
+                                 @NotNull PublishInboundOutput output) {
+        transformation.intercept(input.getPublishPacket().getTopic(), null, false, PublishDelivery.of(output));
+    }
+}
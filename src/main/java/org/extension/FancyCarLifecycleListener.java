@@ -0,0 +1,42 @@
+package org.extension;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.events.client.ClientLifecycleEventListener;
+import com.hivemq.extension.sdk.api.events.client.parameters.AuthenticationSuccessfulInput;
+import com.hivemq.extension.sdk.api.events.client.parameters.ConnectionStartInput;
+import com.hivemq.extension.sdk.api.events.client.parameters.DisconnectEventInput;
+import org.extension.cache.ConnectedCarGenerations;
+
+/**
+ * Keeps {@link ConnectedCarGenerations} up to date with the connected clients.
+ * Generations are only looked up for authenticated clients.
+ * <p>
+ * One listener is created per connection, so the disconnect of a connection which was taken over by a new
+ * connection of the same client id does not forget the generation of the new one.
+ */
+public class FancyCarLifecycleListener implements ClientLifecycleEventListener {
+
+    private final ConnectedCarGenerations connectedCarGenerations;
+    private volatile ConnectedCarGenerations.Connection connection;
+
+    public FancyCarLifecycleListener(ConnectedCarGenerations connectedCarGenerations) {
+        this.connectedCarGenerations = connectedCarGenerations;
+    }
+
+    @Override
+    public void onMqttConnectionStart(@NotNull ConnectionStartInput connectionStartInput) {
+    }
+
+    @Override
+    public void onAuthenticationSuccessful(@NotNull AuthenticationSuccessfulInput authenticationSuccessfulInput) {
+        connection = connectedCarGenerations.connected(authenticationSuccessfulInput.getClientInformation().getClientId());
+    }
+
+    @Override
+    public void onDisconnect(@NotNull DisconnectEventInput disconnectEventInput) {
+        final var connection = this.connection;
+        if (connection != null) {
+            connectedCarGenerations.disconnected(disconnectEventInput.getClientInformation().getClientId(), connection);
+        }
+    }
+}
@@ -1,99 +1,318 @@
 package org.extension;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.hivemq.extension.sdk.api.annotations.NotNull;
-import com.hivemq.extension.sdk.api.async.Async;
 import com.hivemq.extension.sdk.api.interceptor.publish.PublishOutboundInterceptor;
 import com.hivemq.extension.sdk.api.interceptor.publish.parameter.PublishOutboundInput;
 import com.hivemq.extension.sdk.api.interceptor.publish.parameter.PublishOutboundOutput;
-import com.hivemq.extension.sdk.api.services.ManagedExtensionExecutorService;
-import com.hivemq.extension.sdk.api.services.Services;
+import org.extension.cache.FailurePolicy;
+import org.extension.cache.GenerationResolver;
 import org.extension.config.PropertiesHolder;
-import org.extension.dao.CarInfoDAO;
+import org.extension.dao.CarGeneration;
 import org.extension.matcher.TopicMatcher;
 import org.extension.transformer.BackendPayloadTransformer;
+import org.extension.transformer.BinaryTemperatureTransformer;
 import org.extension.transformer.DevicePayloadTransformer;
 import org.extension.transformer.PayloadTransformer;
+import org.extension.transformer.TemperatureConflator;
+import org.extension.transformer.TransformedPayloadCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.nio.ByteBuffer;
-import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Transforms or prevents publishes on the configured topic routes, depending on the generation of the car.
+ * Generations which are not known right away are looked up while the delivery is suspended.
+ * Counters only cover publishes on matching topics and count deliveries, or publishes in inbound transformation mode.
+ */
 public class FancyCarOutboundInterceptor implements PublishOutboundInterceptor {
     private static final @NotNull Logger log = LoggerFactory.getLogger(FancyCarOutboundInterceptor.class);
 
+    public static final String DEVICE_TRANSFORMER = "device";
+    public static final String BACKEND_TRANSFORMER = "backend";
+
     private final TopicMatcher topicMatcher;
-    private final CarInfoDAO carInfoDAO;
+    private final GenerationResolver generationResolver;
+    private final Executor lookupExecutor;
     private final PropertiesHolder propertiesHolder;
-    private final BackendPayloadTransformer backendPayloadTransformer;
-    private final DevicePayloadTransformer devicePayloadTransformer;
+    private final TransformedPayloadCache payloadCache;
+    private final TemperatureConflator conflator;
+    private volatile FailurePolicy failurePolicy;
+    private final boolean asyncLookup;
+    private final boolean inboundTransformation;
+    private final Map<String, PayloadTransformer> transformersByRoute = new HashMap<>();
+    private final Set<String> conflatedRoutes = new HashSet<>();
+    private final Set<String> binaryRoutes = new HashSet<>();
+    private final PayloadTransformer binaryTransformer;
+
+    private final Timer topicMatchingTimer;
+    private final Timer generationLookupTimer;
+    private final Timer transformationTimer;
+    private final Timer asyncHoldTimer;
+    private final Counter transformedCounter;
+    private final Counter passthroughCounter;
+    private final Counter preventedCounter;
+    private final Counter conflatedCounter;
+    private final Counter asyncTimeoutCounter;
 
-    public FancyCarOutboundInterceptor(CarInfoDAO carInfoDAO, PropertiesHolder propertiesHolder) {
+    public FancyCarOutboundInterceptor(GenerationResolver generationResolver, Executor lookupExecutor,
+                                       PropertiesHolder propertiesHolder, MetricRegistry metricRegistry) {
         log.debug("Creating FancyCarOutboundInterceptor");
 
-        this.topicMatcher = new TopicMatcher();
-        this.carInfoDAO = carInfoDAO;
+        this.generationResolver = generationResolver;
+        this.lookupExecutor = lookupExecutor;
         this.propertiesHolder = propertiesHolder;
-        this.backendPayloadTransformer = new BackendPayloadTransformer();
-        this.devicePayloadTransformer = new DevicePayloadTransformer();
+        this.failurePolicy = FailurePolicy.fromName(propertiesHolder.getFailurePolicy());
+        this.asyncLookup = propertiesHolder.isAsyncLookup();
+        this.inboundTransformation = propertiesHolder.isInboundTransformation();
+
+        this.topicMatchingTimer = metricRegistry.timer(metricName("topic-matching"));
+        this.generationLookupTimer = metricRegistry.timer(metricName("generation-lookup"));
+        this.transformationTimer = metricRegistry.timer(metricName("transformation"));
+        this.asyncHoldTimer = metricRegistry.timer(metricName("async-hold"));
+        this.transformedCounter = metricRegistry.counter(metricName("transformed"));
+        this.passthroughCounter = metricRegistry.counter(metricName("passthrough"));
+        this.preventedCounter = metricRegistry.counter(metricName("prevented"));
+        this.conflatedCounter = metricRegistry.counter(metricName("conflated"));
+        this.asyncTimeoutCounter = metricRegistry.counter(metricName("async-timeouts"));
+
+        this.payloadCache = new TransformedPayloadCache(propertiesHolder);
+        if (payloadCache.isEnabled()) {
+            registerMetrics(metricRegistry, payloadCache);
+        }
+        final Map<String, PayloadTransformer> transformersByName = Map.of(
+                DEVICE_TRANSFORMER, payloadCache.memoize(new DevicePayloadTransformer()),
+                BACKEND_TRANSFORMER, payloadCache.memoize(new BackendPayloadTransformer()));
+        propertiesHolder.getTopicRoutes().forEach((route, transformerName) -> {
+            final var transformer = transformersByName.get(transformerName);
+            if (transformer == null) {
+                log.error("Unknown payload transformer '{}' for topic route '{}'.", transformerName, route);
+            } else {
+                transformersByRoute.put(route, transformer);
+            }
+        });
+        this.topicMatcher = new TopicMatcher(propertiesHolder.getTopicPrefix(), transformersByRoute.keySet());
+
+        this.conflator = new TemperatureConflator(propertiesHolder);
+        final var topicRoutes = propertiesHolder.getTopicRoutes();
+        for (String route : propertiesHolder.getConflationRoutes()) {
+            if (DEVICE_TRANSFORMER.equals(topicRoutes.get(route))) {
+                conflatedRoutes.add(route);
+            } else {
+                log.error("Topic route '{}' can not be conflated, it does not use the device transformer.", route);
+            }
+        }
+        metricRegistry.register(MetricRegistry.name(TemperatureConflator.class, "size"),
+                (Gauge<Integer>) conflator::size);
+
+        this.binaryTransformer = payloadCache.memoize(new BinaryTemperatureTransformer());
+        for (String route : propertiesHolder.getBinaryEncodingRoutes()) {
+            if (DEVICE_TRANSFORMER.equals(topicRoutes.get(route))) {
+                binaryRoutes.add(route);
+            } else {
+                log.error("Topic route '{}' can not be binary encoded, it does not use the device transformer.", route);
+            }
+        }
+    }
+
+    // topic routes, conflated routes and the lookup mode need a restart
+    public void reconfigure(PropertiesHolder propertiesHolder) {
+        this.failurePolicy = FailurePolicy.fromName(propertiesHolder.getFailurePolicy());
+        payloadCache.reconfigure(propertiesHolder);
+        conflator.reconfigure(propertiesHolder);
     }
 
     @Override
-    //TODO: Ask if inbound interceptor would be better in this case
     public void onOutboundPublish(@NotNull PublishOutboundInput input,
                                   @NotNull PublishOutboundOutput output) {
+        final String subscriberId = conflator.isEnabled() ? input.getClientInformation().getClientId() : null;
+        intercept(input.getPublishPacket().getTopic(), subscriberId, false, PublishDelivery.of(output));
+    }
 
-        final ManagedExtensionExecutorService extensionExecutorService = Services.extensionExecutorService();
+    // shares state and metrics with this interceptor
+    public PublishOutboundInterceptor forBinarySubscribers() {
+        return (input, output) -> {
+            final String subscriberId = conflator.isEnabled() ? input.getClientInformation().getClientId() : null;
+            interceptForBinarySubscriber(input.getPublishPacket().getTopic(), subscriberId, PublishDelivery.of(output));
+        };
+    }
 
-        var topic = input.getPublishPacket().getTopic();
+    public boolean isBinaryEncodingEnabled() {
+        return !binaryRoutes.isEmpty();
+    }
 
-        final var temperatureClientID = topicMatcher.getClientIfMatchTemperature(topic);
-        if (temperatureClientID != null) {
-            log.debug(String.format("Got a message in temperature topic from %s", temperatureClientID));
+    // subscriberId is null if the publish is transformed once for all subscribers
+    void intercept(String topic, String subscriberId, boolean binarySubscriber, PublishDelivery output) {
+        final long matchingStart = System.nanoTime();
+        final var match = topicMatcher.match(topic);
+        topicMatchingTimer.update(System.nanoTime() - matchingStart, TimeUnit.NANOSECONDS);
+        if (match != null) {
+            final var clientID = match.getClientId();
+            log.debug("Got a message in {} topic from {}", match.getRoute(), clientID);
+            final String conflationKey = conflator.isEnabled() && conflatedRoutes.contains(match.getRoute())
+                    ? TemperatureConflator.key(subscriberId, topic) : null;
+            if (binarySubscriber && binaryRoutes.contains(match.getRoute())) {
+                transformPayloadFormat(output, binaryTransformer, binaryTransformer, clientID, conflationKey);
+            } else {
+                transformPayloadFormat(output, transformersByRoute.get(match.getRoute()), null, clientID, conflationKey);
+            }
+        }
+    }
 
-            final Async<PublishOutboundOutput> async = output.async(
-                    Duration.ofSeconds(propertiesHolder.getInterceptorTimeout()));
-            extensionExecutorService.submit(() -> {
-                transformPayloadFormatIfNeeded(output, devicePayloadTransformer, temperatureClientID);
-                async.resume();
-            });
-        } else {
-            final var commandClientID = topicMatcher.getClientIfMatchCommand(topic);
+    // in inbound transformation mode publishes arrive here transformed already
+    void interceptForBinarySubscriber(String topic, String subscriberId, PublishDelivery output) {
+        if (!inboundTransformation) {
+            intercept(topic, subscriberId, true, output);
+            return;
+        }
+        final var match = topicMatcher.match(topic);
+        if (match == null || !binaryRoutes.contains(match.getRoute())) {
+            return;
+        }
+        final Optional<ByteBuffer> newPayload;
+        try (var ignored = transformationTimer.time()) {
+            newPayload = output.getPayload().flatMap(binaryTransformer::transformPayload);
+        }
+        // like readings of new generation cars, a reading which can not be encoded is better than nothing
+        newPayload.ifPresent(output::setPayload);
+    }
 
-            if (commandClientID != null) {
-                log.debug(String.format("Got a message in command topic from %s", commandClientID));
+    // newGenerationTransformer is null to pass payloads of new generation cars through
+    private void transformPayloadFormat(PublishDelivery output, PayloadTransformer transformer,
+                                        PayloadTransformer newGenerationTransformer,
+                                        String clientID, String conflationKey) {
 
-                final Async<PublishOutboundOutput> async = output.async(
-                        Duration.ofSeconds(propertiesHolder.getInterceptorTimeout()));
-                extensionExecutorService.submit(() -> {
-                    transformPayloadFormatIfNeeded(output, backendPayloadTransformer, commandClientID);
-                    async.resume();
-                });
-            }
+        final var knownGeneration = generationResolver.getGenerationIfKnown(clientID);
+        if (knownGeneration != null) {
+            // No DB lookup needed, so there is no reason to suspend the delivery and hand it over to another thread
+            transformPayloadFormatIfNeeded(output, transformer, newGenerationTransformer, clientID, conflationKey,
+                    knownGeneration);
+            return;
+        }
+
+        final Duration timeout = Duration.ofSeconds(propertiesHolder.getInterceptorTimeout());
+        final long holdStart = System.nanoTime();
+        final Runnable resume = output.suspend(timeout);
+
+        if (asyncLookup) {
+            // the delivery is resumed by whichever thread completes the lookup, no thread waits for it
+            generationResolver.getGenerationAsync(clientID).whenComplete((generation, e) -> {
+                generationLookupTimer.update(System.nanoTime() - holdStart, TimeUnit.NANOSECONDS);
+                if (e != null) {
+                    log.error("Exception during looking up generation for clientID {}.", clientID, e);
+                }
+                resume(resume, output, transformer, newGenerationTransformer, clientID, conflationKey,
+                        e == null ? generation : failurePolicy.getFallbackGeneration(), holdStart, timeout);
+            });
+            return;
+        }
+
+        try {
+            lookupExecutor.execute(() -> {
+                final CarGeneration generation;
+                try (var ignored = generationLookupTimer.time()) {
+                    generation = generationResolver.getGeneration(clientID);
+                }
+                resume(resume, output, transformer, newGenerationTransformer, clientID, conflationKey, generation,
+                        holdStart, timeout);
+            });
+        } catch (RejectedExecutionException e) {
+            log.debug("Generation lookup for clientID {} rejected, too many lookups are waiting.", clientID);
+            transformPayloadFormatIfNeeded(output, transformer, newGenerationTransformer, clientID, conflationKey,
+                    failurePolicy.getFallbackGeneration());
+            resume.run();
         }
     }
 
-    private void transformPayloadFormatIfNeeded(PublishOutboundOutput output,
-                                                PayloadTransformer transformer, String clientID) {
+    private void resume(Runnable resume, PublishDelivery output,
+                        PayloadTransformer transformer, PayloadTransformer newGenerationTransformer,
+                        String clientID, String conflationKey,
+                        CarGeneration generation, long holdStart, Duration timeout) {
+
+        transformPayloadFormatIfNeeded(output, transformer, newGenerationTransformer, clientID, conflationKey,
+                generation);
+
+        final long holdNanos = System.nanoTime() - holdStart;
+        asyncHoldTimer.update(holdNanos, TimeUnit.NANOSECONDS);
+        if (holdNanos >= timeout.toNanos()) {
+            // the broker already gave up on this publish and applied its timeout fallback
+            asyncTimeoutCounter.inc();
+        }
+        resume.run();
+    }
 
-        Boolean isOldGen = carInfoDAO.isOldGenerationCar(clientID);
+    private void transformPayloadFormatIfNeeded(PublishDelivery output, PayloadTransformer transformer,
+                                                PayloadTransformer newGenerationTransformer,
+                                                String clientID, String conflationKey, CarGeneration generation) {
 
-        if (isOldGen == null) { // Error occurs during DB connection
-            output.preventPublishDelivery();
-        } else if (isOldGen) {
+        if (generation == null || generation == CarGeneration.UNKNOWN) { // Not found in DB or error during DB connection
+            preventedCounter.inc();
+            output.prevent();
+        } else if (generation == CarGeneration.OLD) {
+            final var payload = output.getPayload();
+            if (conflationKey != null && payload.isPresent() && !conflator.offer(conflationKey, payload.get())) {
+                // superseded by the last reading delivered, no need to transform it
+                conflatedCounter.inc();
+                output.prevent();
+                return;
+            }
             log.debug("Transforming outbound message for clientID {}", clientID);
 
-            final var publishPacket = output.getPublishPacket();
-            var newPayload = transformer.transformPayload(output.getPublishPacket());
+            final Optional<ByteBuffer> newPayload;
+            try (var ignored = transformationTimer.time()) {
+                newPayload = payload.flatMap(transformer::transformPayload);
+            }
 
             if (newPayload.isEmpty()) {
-                output.preventPublishDelivery();
+                preventedCounter.inc();
+                output.prevent();
                 return;
             }
 
-            final ByteBuffer payload = ByteBuffer.wrap(newPayload.get().getBytes(StandardCharsets.UTF_8));
-            publishPacket.setPayload(payload);
+            output.setPayload(newPayload.get());
+            transformedCounter.inc();
+        } else if (newGenerationTransformer != null) {
+            final Optional<ByteBuffer> newPayload;
+            try (var ignored = transformationTimer.time()) {
+                newPayload = output.getPayload().flatMap(newGenerationTransformer::transformPayload);
+            }
+            // new generation cars send valid readings anyway, so the original is better than nothing
+            if (newPayload.isPresent()) {
+                output.setPayload(newPayload.get());
+                transformedCounter.inc();
+            } else {
+                passthroughCounter.inc();
+            }
+        } else {
+            passthroughCounter.inc();
         }
     }
-}
\ No newline at end of file
+
+    private static void registerMetrics(MetricRegistry metricRegistry, TransformedPayloadCache payloadCache) {
+        metricRegistry.register(MetricRegistry.name(TransformedPayloadCache.class, "hits"),
+                (Gauge<Long>) payloadCache::getHitCount);
+        metricRegistry.register(MetricRegistry.name(TransformedPayloadCache.class, "misses"),
+                (Gauge<Long>) payloadCache::getMissCount);
+        metricRegistry.register(MetricRegistry.name(TransformedPayloadCache.class, "evictions"),
+                (Gauge<Long>) payloadCache::getEvictionCount);
+        metricRegistry.register(MetricRegistry.name(TransformedPayloadCache.class, "bytes"),
+                (Gauge<Long>) payloadCache::getBytes);
+    }
+
+    private static String metricName(String name) {
+        return MetricRegistry.name(FancyCarOutboundInterceptor.class, name);
+    }
+}
@@ -0,0 +1,112 @@
+package org.extension;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.interceptor.publish.PublishInboundInterceptor;
+import com.hivemq.extension.sdk.api.interceptor.publish.PublishOutboundInterceptor;
+import com.hivemq.extension.sdk.api.interceptor.publish.parameter.PublishInboundInput;
+import com.hivemq.extension.sdk.api.interceptor.publish.parameter.PublishInboundOutput;
+import com.hivemq.extension.sdk.api.interceptor.publish.parameter.PublishOutboundInput;
+import com.hivemq.extension.sdk.api.interceptor.publish.parameter.PublishOutboundOutput;
+import org.extension.cache.GenerationResolver;
+import org.extension.config.PropertiesHolder;
+import org.extension.dao.CarGeneration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Applies generation changes announced on the control topic to the generations known by this node, so upgraded cars
+ * are picked up without waiting for cache expiry or polling DB.
+ * <p>
+ * The payload contains one "clientid,generation" line per car. Generations are given like in the DB column or as
+ * "old" and "new", "unknown" makes the node forget the client id. Control publishes of clients which are not allowed
+ * are prevented on the node they are published to.
+ * <p>
+ * Allowed control publishes are applied on the node they are published to, and on every node delivering them to
+ * one of the allowed clients, so a publish is applied once per such subscriber rather than once per delivery.
+ * The extension does not subscribe to the control topic itself: to reach all nodes of a cluster, keep one allowed
+ * client subscribed to the control topic on each node.
+ */
+public class GenerationControlInterceptor implements PublishInboundInterceptor, PublishOutboundInterceptor {
+    private static final @NotNull Logger log = LoggerFactory.getLogger(GenerationControlInterceptor.class);
+
+    private static final String SEPARATOR = ",";
+    private static final String UNKNOWN = "unknown";
+
+    private final GenerationResolver generationResolver;
+    private final String controlTopic;
+    private final Set<String> controlClientIds;
+
+    private final Counter appliedCounter;
+    private final Counter rejectedCounter;
+
+    public GenerationControlInterceptor(GenerationResolver generationResolver, PropertiesHolder propertiesHolder,
+                                        MetricRegistry metricRegistry) {
+        this.generationResolver = generationResolver;
+        this.controlTopic = propertiesHolder.getControlTopic();
+        this.controlClientIds = propertiesHolder.getControlClientIds();
+        this.appliedCounter = metricRegistry.counter(MetricRegistry.name(GenerationControlInterceptor.class, "applied"));
+        this.rejectedCounter = metricRegistry.counter(MetricRegistry.name(GenerationControlInterceptor.class, "rejected"));
+    }
+
+    @Override
+    public void onInboundPublish(@NotNull PublishInboundInput input,
+                                 @NotNull PublishInboundOutput output) {
+        final var publishPacket = input.getPublishPacket();
+        if (!controlTopic.equals(publishPacket.getTopic())) {
+            return;
+        }
+        final var clientId = input.getClientInformation().getClientId();
+        if (!controlClientIds.contains(clientId)) {
+            log.warn("Client {} is not allowed to publish generation changes.", clientId);
+            rejectedCounter.inc();
+            output.preventPublishDelivery();
+            return;
+        }
+        publishPacket.getPayload().ifPresent(this::applyChanges);
+    }
+
+    @Override
+    public void onOutboundPublish(@NotNull PublishOutboundInput input,
+                                  @NotNull PublishOutboundOutput output) {
+        final var publishPacket = input.getPublishPacket();
+        onDelivery(input.getClientInformation().getClientId(), publishPacket.getTopic(), publishPacket.getPayload());
+    }
+
+    void onDelivery(final String subscriberId, final String topic, final Optional<ByteBuffer> payload) {
+        // allowed by the node it was published to, which may be this one: applying it twice does no harm
+        if (controlTopic.equals(topic) && controlClientIds.contains(subscriberId)) {
+            payload.ifPresent(this::applyChanges);
+        }
+    }
+
+    void applyChanges(final ByteBuffer payload) {
+        final var changes = StandardCharsets.UTF_8.decode(payload.duplicate()).toString();
+        for (String line : changes.split("\\R")) {
+            final var trimmed = line.trim();
+            final int separator = trimmed.lastIndexOf(SEPARATOR);
+            if (separator <= 0) {
+                if (!trimmed.isEmpty()) {
+                    log.warn("Ignoring generation change '{}' without client id and generation.", trimmed);
+                }
+                continue;
+            }
+            final var clientId = trimmed.substring(0, separator).trim();
+            final var name = trimmed.substring(separator + 1).trim();
+            final var generation = UNKNOWN.equalsIgnoreCase(name) ? CarGeneration.UNKNOWN : CarGeneration.fromName(name);
+            if (generation == null) {
+                log.warn("Ignoring unknown generation '{}' of clientID {}.", name, clientId);
+                continue;
+            }
+            log.debug("Applying generation {} of clientID {}.", generation, clientId);
+            generationResolver.apply(clientId, generation);
+            appliedCounter.inc();
+        }
+    }
+}
@@ -1,23 +1,48 @@
 package org.extension;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
 import com.hivemq.extension.sdk.api.ExtensionMain;
 import com.hivemq.extension.sdk.api.annotations.NotNull;
 import com.hivemq.extension.sdk.api.parameter.*;
 import com.hivemq.extension.sdk.api.services.Services;
+import org.extension.cache.ConnectedCarGenerations;
+import org.extension.cache.GenerationCache;
+import org.extension.cache.GenerationIndex;
+import org.extension.cache.GenerationIndexSynchronizer;
+import org.extension.cache.GenerationResolver;
+import org.extension.cache.GenerationSnapshot;
+import org.extension.cache.LocalGenerationResolver;
+import org.extension.config.ConfigurationWatcher;
 import org.extension.config.PropertiesHolder;
 import org.extension.dao.CarInfoDAO;
+import org.extension.dao.CircuitBreaker;
+import org.extension.dao.ConcurrencyLimiter;
+import org.extension.dao.FileGenerationSource;
+import org.extension.dao.GenerationLookupBatcher;
+import org.extension.dao.GenerationSource;
+import org.extension.dao.LookupExecutor;
+import org.extension.dao.MappedFileGenerationSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
 public class NewFancyCarExtensionMain implements ExtensionMain {
 
     private static final @NotNull Logger log = LoggerFactory.getLogger(NewFancyCarExtensionMain.class);
 
-    private final CarInfoDAO carInfoDao;
-
-    public NewFancyCarExtensionMain() {
-        this.carInfoDao = new CarInfoDAO();
-    }
+    private GenerationSource generationSource;
+    private GenerationIndexSynchronizer generationIndexSynchronizer;
+    private GenerationResolver generationResolver;
+    private GenerationSnapshot generationSnapshot;
+    private LookupExecutor lookupExecutor;
+    private ConfigurationWatcher configurationWatcher;
+    // starts the connection pool and keeps the index in sync, which may block on DB for long
+    private ScheduledExecutorService generationSourceExecutor;
 
     @Override
     public void extensionStart(final @NotNull ExtensionStartInput extensionStartInput,
@@ -32,14 +57,73 @@ public class NewFancyCarExtensionMain implements ExtensionMain {
             extensionStartOutput.preventExtensionStartup("Exception during reading properties.");
         }
 
-        carInfoDao.init(propertiesHolder);
+        final var metricRegistry = Services.metricRegistry();
 
         try {
+            configurationWatcher = new ConfigurationWatcher(propertiesHolder, extensionHomeFolder);
+            generationSourceExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final var thread = new Thread(runnable, "fancy-cars-generation-source");
+                thread.setDaemon(true);
+                return thread;
+            });
+            generationSource = createGenerationSource(propertiesHolder, extensionHomeFolder, metricRegistry,
+                    generationSourceExecutor);
+            configurationWatcher.addListener(generationSource::reconfigure);
+            lookupExecutor = new LookupExecutor(propertiesHolder);
+            configurationWatcher.addListener(lookupExecutor::reconfigure);
+            registerMetrics(metricRegistry, lookupExecutor);
+
+            if (generationSource.isLocal()) {
+                // local sources answer without I/O worth caching, batching or guarding
+                generationResolver = new LocalGenerationResolver(generationSource);
+            } else {
+                generationResolver = createDbResolver(propertiesHolder, metricRegistry);
+                final var snapshotFile = propertiesHolder.getSnapshotFile();
+                if (!snapshotFile.isEmpty()) {
+                    generationSnapshot = new GenerationSnapshot(extensionHomeFolder.toPath().resolve(snapshotFile));
+                    generationSnapshot.restore(generationResolver);
+                }
+                // started after restoring, so the older snapshot never replaces the bulk load
+                if (generationIndexSynchronizer != null) {
+                    generationIndexSynchronizer.start(generationSourceExecutor);
+                }
+            }
+
+            // the interceptor is stateless, so all clients share one instance
+            final var outboundInterceptor = new FancyCarOutboundInterceptor(
+                    generationResolver, lookupExecutor, propertiesHolder, metricRegistry);
+            configurationWatcher.addListener(outboundInterceptor::reconfigure);
+            final var inboundInterceptor = propertiesHolder.isInboundTransformation()
+                    ? new FancyCarInboundInterceptor(outboundInterceptor) : null;
+            final var controlInterceptor = propertiesHolder.getControlClientIds().isEmpty()
+                    ? null : new GenerationControlInterceptor(generationResolver, propertiesHolder, metricRegistry);
+            final var binaryInterceptor = outboundInterceptor.isBinaryEncodingEnabled()
+                    ? outboundInterceptor.forBinarySubscribers() : null;
+            if (binaryInterceptor != null) {
+                final var payloadFormatInterceptor = new PayloadFormatConnectInterceptor();
+                Services.interceptorRegistry().setConnectInboundInterceptorProvider(
+                        providerInput -> payloadFormatInterceptor);
+            }
             Services.initializerRegistry().setClientInitializer(
                     (initializerInput, clientContext) -> {
-                        clientContext.addPublishOutboundInterceptor(new FancyCarOutboundInterceptor(carInfoDao, propertiesHolder));
+                        // in inbound mode binary subscribers get the readings transformed already, then encoded
+                        final boolean binary = binaryInterceptor != null
+                                && PayloadFormatConnectInterceptor.isBinary(initializerInput);
+                        if (inboundInterceptor != null) {
+                            clientContext.addPublishInboundInterceptor(inboundInterceptor);
+                        }
+                        if (binary) {
+                            clientContext.addPublishOutboundInterceptor(binaryInterceptor);
+                        } else if (inboundInterceptor == null) {
+                            clientContext.addPublishOutboundInterceptor(outboundInterceptor);
+                        }
+                        if (controlInterceptor != null) {
+                            clientContext.addPublishInboundInterceptor(controlInterceptor);
+                            clientContext.addPublishOutboundInterceptor(controlInterceptor);
+                        }
                     });
 
+            configurationWatcher.start(Services.extensionExecutorService());
         } catch (Exception e) {
             log.error("Exception thrown at Fancy Car Extension start: ", e);
             extensionStartOutput.preventExtensionStartup("Exception thrown at Fancy Car Extension start.");
@@ -50,10 +134,125 @@ public class NewFancyCarExtensionMain implements ExtensionMain {
     public void extensionStop(final @NotNull ExtensionStopInput extensionStopInput,
                               final @NotNull ExtensionStopOutput extensionStopOutput) {
 
-        carInfoDao.shutDown();
+        if (configurationWatcher != null) {
+            configurationWatcher.stop();
+        }
+        if (generationIndexSynchronizer != null) {
+            generationIndexSynchronizer.stop();
+        }
+        if (generationSourceExecutor != null) {
+            generationSourceExecutor.shutdownNow();
+        }
+        if (lookupExecutor != null) {
+            lookupExecutor.shutDown();
+        }
+        if (generationSnapshot != null && generationResolver != null) {
+            generationSnapshot.save(generationResolver);
+        }
+        Services.metricRegistry().removeMatching(
+                (name, metric) -> name.startsWith(NewFancyCarExtensionMain.class.getPackageName()));
+        if (generationSource != null) {
+            generationSource.shutDown();
+        }
 
         final ExtensionInformation extensionInformation = extensionStopInput.getExtensionInformation();
         log.info("Stopped {}:{}", extensionInformation.getName(), extensionInformation.getVersion());
     }
 
+    private GenerationResolver createDbResolver(PropertiesHolder propertiesHolder, MetricRegistry metricRegistry) {
+        final var circuitBreaker = new CircuitBreaker(propertiesHolder);
+        final var concurrencyLimiter = new ConcurrencyLimiter(propertiesHolder);
+        configurationWatcher.addListener(concurrencyLimiter::reconfigure);
+        // asynchronous lookups must not run queries on the broker threads which submit them
+        final var lookupBatcher = new GenerationLookupBatcher(generationSource, circuitBreaker, concurrencyLimiter,
+                propertiesHolder, lookupExecutor.getScheduler(),
+                propertiesHolder.isAsyncLookup() ? lookupExecutor : null);
+        final var generationCache = new GenerationCache(lookupBatcher, propertiesHolder, lookupExecutor);
+        configurationWatcher.addListener(generationCache::reconfigure);
+        registerMetrics(metricRegistry, generationCache, lookupBatcher, circuitBreaker, concurrencyLimiter);
+
+        if (propertiesHolder.isPreloadEnabled()) {
+            final var generationIndex = new GenerationIndex(generationCache);
+            generationIndexSynchronizer = new GenerationIndexSynchronizer(generationSource, generationIndex, propertiesHolder);
+            metricRegistry.register(MetricRegistry.name(GenerationIndex.class, "size"),
+                    (Gauge<Integer>) generationIndex::size);
+            return generationIndex;
+        }
+
+        // the index knows all cars anyway, without it connected cars are looked up when they connect
+        final var connectedCarGenerations = new ConnectedCarGenerations(generationCache, propertiesHolder, lookupExecutor);
+        // one listener per connection, it remembers which connection it registered
+        Services.eventRegistry().setClientLifecycleEventListener(
+                providerInput -> new FancyCarLifecycleListener(connectedCarGenerations));
+        metricRegistry.register(MetricRegistry.name(ConnectedCarGenerations.class, "size"),
+                (Gauge<Integer>) connectedCarGenerations::size);
+        return connectedCarGenerations;
+    }
+
+    private static GenerationSource createGenerationSource(PropertiesHolder propertiesHolder, File extensionHomeFolder,
+                                                           MetricRegistry metricRegistry,
+                                                           ScheduledExecutorService poolStarter)
+            throws IOException {
+        final var sourceFile = extensionHomeFolder.toPath().resolve(propertiesHolder.getGenerationSourceFile());
+        switch (propertiesHolder.getGenerationSource()) {
+            case "file":
+                log.info("Reading generations from {}.", sourceFile);
+                return new FileGenerationSource(sourceFile);
+            case "mmap":
+                log.info("Mapping generations from {}.", sourceFile);
+                return new MappedFileGenerationSource(sourceFile);
+            case "jdbc":
+                final var carInfoDao = new CarInfoDAO();
+                // DB may be slow or down, the broker start does not wait for the connection pool
+                carInfoDao.init(propertiesHolder, metricRegistry, poolStarter);
+                return carInfoDao;
+            default:
+                throw new IllegalArgumentException("Unknown generation source '"
+                        + propertiesHolder.getGenerationSource() + "'.");
+        }
+    }
+
+    private void registerMetrics(MetricRegistry metricRegistry, GenerationCache generationCache,
+                                 GenerationLookupBatcher lookupBatcher, CircuitBreaker circuitBreaker,
+                                 ConcurrencyLimiter concurrencyLimiter) {
+        metricRegistry.register(MetricRegistry.name(GenerationCache.class, "hits"),
+                (Gauge<Long>) generationCache::getHitCount);
+        metricRegistry.register(MetricRegistry.name(GenerationCache.class, "misses"),
+                (Gauge<Long>) generationCache::getMissCount);
+        metricRegistry.register(MetricRegistry.name(GenerationCache.class, "evictions"),
+                (Gauge<Long>) generationCache::getEvictionCount);
+        metricRegistry.register(MetricRegistry.name(GenerationCache.class, "refreshes"),
+                (Gauge<Long>) generationCache::getRefreshCount);
+        metricRegistry.register(MetricRegistry.name(GenerationCache.class, "coalesced"),
+                (Gauge<Long>) generationCache::getCoalescedCount);
+        metricRegistry.register(MetricRegistry.name(GenerationCache.class, "stale-hits"),
+                (Gauge<Long>) generationCache::getStaleHitCount);
+        metricRegistry.register(MetricRegistry.name(GenerationCache.class, "size"),
+                (Gauge<Integer>) generationCache::size);
+        metricRegistry.register(MetricRegistry.name(GenerationLookupBatcher.class, "batches"),
+                (Gauge<Long>) lookupBatcher::getBatchCount);
+        metricRegistry.register(MetricRegistry.name(GenerationLookupBatcher.class, "lookups"),
+                (Gauge<Long>) lookupBatcher::getLookupCount);
+        // 0 closed, 1 open, 2 half open
+        metricRegistry.register(MetricRegistry.name(CircuitBreaker.class, "state"),
+                (Gauge<Integer>) () -> circuitBreaker.getState().ordinal());
+        metricRegistry.register(MetricRegistry.name(CircuitBreaker.class, "rejected"),
+                (Gauge<Long>) circuitBreaker::getRejectedCount);
+        metricRegistry.register(MetricRegistry.name(ConcurrencyLimiter.class, "limit"),
+                (Gauge<Integer>) concurrencyLimiter::getLimit);
+        metricRegistry.register(MetricRegistry.name(ConcurrencyLimiter.class, "in-flight"),
+                (Gauge<Integer>) concurrencyLimiter::getInFlight);
+        metricRegistry.register(MetricRegistry.name(ConcurrencyLimiter.class, "shed"),
+                (Gauge<Long>) concurrencyLimiter::getShedCount);
+    }
+
+    private void registerMetrics(MetricRegistry metricRegistry, LookupExecutor lookupExecutor) {
+        metricRegistry.register(MetricRegistry.name(LookupExecutor.class, "queued"),
+                (Gauge<Integer>) lookupExecutor::getQueueSize);
+        metricRegistry.register(MetricRegistry.name(LookupExecutor.class, "active"),
+                (Gauge<Integer>) lookupExecutor::getActiveCount);
+        metricRegistry.register(MetricRegistry.name(LookupExecutor.class, "rejected"),
+                (Gauge<Long>) lookupExecutor::getRejectedCount);
+    }
+
 }
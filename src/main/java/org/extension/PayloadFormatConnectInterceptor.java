@@ -0,0 +1,34 @@
+package org.extension;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.extension.sdk.api.interceptor.connect.ConnectInboundInterceptor;
+import com.hivemq.extension.sdk.api.interceptor.connect.parameter.ConnectInboundInput;
+import com.hivemq.extension.sdk.api.interceptor.connect.parameter.ConnectInboundOutput;
+import com.hivemq.extension.sdk.api.parameter.ClientBasedInput;
+
+/**
+ * Remembers whether a client asked for binary encoded readings with the "payload-format" user property of its
+ * CONNECT, so the client initializer can pick the matching publish interceptor once per connection.
+ */
+public class PayloadFormatConnectInterceptor implements ConnectInboundInterceptor {
+
+    public static final String USER_PROPERTY = "payload-format";
+    public static final String BINARY = "binary";
+
+    private static final String ATTRIBUTE = "fancy-cars.payload-format";
+
+    @Override
+    public void onConnect(@NotNull ConnectInboundInput input, @NotNull ConnectInboundOutput output) {
+        input.getConnectPacket().getUserProperties().getFirst(USER_PROPERTY)
+                .filter(BINARY::equalsIgnoreCase)
+                .ifPresent(format -> input.getConnectionInformation().getConnectionAttributeStore()
+                        .putAsString(ATTRIBUTE, BINARY));
+    }
+
+    /**
+     * @return true if the client of the given input asked for binary encoded readings when connecting
+     */
+    public static boolean isBinary(@NotNull ClientBasedInput input) {
+        return input.getConnectionInformation().getConnectionAttributeStore().getAsString(ATTRIBUTE).isPresent();
+    }
+}
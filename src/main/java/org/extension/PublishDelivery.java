@@ -0,0 +1,73 @@
+package org.extension;
+
+import com.hivemq.extension.sdk.api.interceptor.publish.parameter.PublishInboundOutput;
+import com.hivemq.extension.sdk.api.interceptor.publish.parameter.PublishOutboundOutput;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * The parts of an inbound or outbound publish output the transformation needs, so both directions share one code path.
+ */
+interface PublishDelivery {
+
+    Optional<ByteBuffer> getPayload();
+
+    void setPayload(ByteBuffer payload);
+
+    void prevent();
+
+    /**
+     * Suspends the delivery until the returned action is run, or until the timeout is reached.
+     */
+    Runnable suspend(Duration timeout);
+
+    static PublishDelivery of(final PublishOutboundOutput output) {
+        return new PublishDelivery() {
+            @Override
+            public Optional<ByteBuffer> getPayload() {
+                return output.getPublishPacket().getPayload();
+            }
+
+            @Override
+            public void setPayload(final ByteBuffer payload) {
+                output.getPublishPacket().setPayload(payload);
+            }
+
+            @Override
+            public void prevent() {
+                output.preventPublishDelivery();
+            }
+
+            @Override
+            public Runnable suspend(final Duration timeout) {
+                return output.async(timeout)::resume;
+            }
+        };
+    }
+
+    static PublishDelivery of(final PublishInboundOutput output) {
+        return new PublishDelivery() {
+            @Override
+            public Optional<ByteBuffer> getPayload() {
+                return output.getPublishPacket().getPayload();
+            }
+
+            @Override
+            public void setPayload(final ByteBuffer payload) {
+                output.getPublishPacket().setPayload(payload);
+            }
+
+            @Override
+            public void prevent() {
+                output.preventPublishDelivery();
+            }
+
+            @Override
+            public Runnable suspend(final Duration timeout) {
+                return output.async(timeout)::resume;
+            }
+        };
+    }
+}
@@ -0,0 +1,144 @@
+package org.extension.cache;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import org.extension.config.PropertiesHolder;
+import org.extension.dao.CarGeneration;
+import org.extension.dao.GenerationLoader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Generations of the cars which are currently connected, looked up once when the car connects and kept until it
+ * disconnects. Kept generations read after the refresh age are looked up again in background.
+ * Cars not found in DB are left to the negative caching of the delegate.
+ */
+public class ConnectedCarGenerations implements GenerationResolver {
+    private static final @NotNull Logger log = LoggerFactory.getLogger(ConnectedCarGenerations.class);
+
+    private final GenerationResolver delegate;
+    private final Executor lookupExecutor;
+    private final long refreshAfterNanos;
+    private final LongSupplier nanoTicker;
+    private final ConcurrentHashMap<String, Connection> connections = new ConcurrentHashMap<>();
+
+    public ConnectedCarGenerations(GenerationResolver delegate, PropertiesHolder propertiesHolder,
+                                   Executor lookupExecutor) {
+        this(delegate, propertiesHolder, lookupExecutor, System::nanoTime);
+    }
+
+    ConnectedCarGenerations(GenerationResolver delegate, PropertiesHolder propertiesHolder, Executor lookupExecutor,
+                            LongSupplier nanoTicker) {
+        this.delegate = delegate;
+        this.lookupExecutor = lookupExecutor;
+        this.refreshAfterNanos = TimeUnit.SECONDS.toNanos(propertiesHolder.getCacheRefreshAfter());
+        this.nanoTicker = nanoTicker;
+    }
+
+    @Override
+    public CarGeneration getGeneration(final String clientId) {
+        final var generation = getConnectedGeneration(clientId);
+        return generation != null ? generation : delegate.getGeneration(clientId);
+    }
+
+    @Override
+    public CompletableFuture<CarGeneration> getGenerationAsync(final String clientId) {
+        final var generation = getConnectedGeneration(clientId);
+        return generation != null ? CompletableFuture.completedFuture(generation) : delegate.getGenerationAsync(clientId);
+    }
+
+    @Override
+    public CarGeneration getGenerationIfKnown(final String clientId) {
+        final var generation = getConnectedGeneration(clientId);
+        return generation != null ? generation : delegate.getGenerationIfKnown(clientId);
+    }
+
+    @Override
+    public void apply(final String clientId, final CarGeneration generation) {
+        delegate.apply(clientId, generation);
+        final var connection = connections.get(clientId);
+        if (connection != null) {
+            // like on connect, cars not found in DB are left to the delegate
+            connection.generation = generation == CarGeneration.UNKNOWN ? null : generation;
+        }
+    }
+
+    @Override
+    public void forEachKnown(final BiConsumer<String, CarGeneration> consumer) {
+        delegate.forEachKnown(consumer);
+        connections.forEach((clientId, connection) -> {
+            final var generation = connection.generation;
+            if (generation != null) {
+                consumer.accept(clientId, generation);
+            }
+        });
+    }
+
+    @Override
+    public <E extends Exception> void restore(final GenerationLoader<E> loader) throws E {
+        delegate.restore(loader);
+    }
+
+    public Connection connected(final String clientId) {
+        final var connection = new Connection(nanoTicker.getAsLong() + refreshAfterNanos);
+        connections.put(clientId, connection);
+        lookUp(clientId, connection);
+        return connection;
+    }
+
+    // a client id taken over by a new connection meanwhile keeps the new one
+    public void disconnected(final String clientId, final Connection connection) {
+        connections.remove(clientId, connection);
+    }
+
+    public int size() {
+        return connections.size();
+    }
+
+    private CarGeneration getConnectedGeneration(final String clientId) {
+        final var connection = connections.get(clientId);
+        if (connection == null) {
+            return null;
+        }
+        final var generation = connection.generation;
+        final long now = nanoTicker.getAsLong();
+        if (generation != null && now - connection.refreshAt >= 0) {
+            // concurrent readers may both refresh, the delegate shares their lookups
+            connection.refreshAt = now + refreshAfterNanos;
+            lookUp(clientId, connection);
+        }
+        return generation;
+    }
+
+    private void lookUp(final String clientId, final Connection connection) {
+        try {
+            lookupExecutor.execute(() -> delegate.getGenerationAsync(clientId).thenAccept(generation -> {
+                // a car which disconnected in the meantime only updates its orphaned connection
+                if (generation == CarGeneration.OLD || generation == CarGeneration.NEW) {
+                    connection.generation = generation;
+                } else if (generation == CarGeneration.UNKNOWN) {
+                    // deleted from DB, like on connect left to the delegate
+                    connection.generation = null;
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            log.debug("Generation lookup for connected clientID {} rejected, it is looked up on first publish.", clientId);
+        }
+    }
+
+    public static final class Connection {
+        private volatile CarGeneration generation;
+        private volatile long refreshAt;
+
+        private Connection(final long refreshAt) {
+            this.refreshAt = refreshAt;
+        }
+    }
+}
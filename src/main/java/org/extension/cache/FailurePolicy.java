@@ -0,0 +1,38 @@
+package org.extension.cache;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import org.extension.dao.CarGeneration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Locale;
+
+/**
+ * What to do with publishes of cars whose generation could not be looked up, and was never seen before.
+ */
+public enum FailurePolicy {
+    // untransformed, as if the car was of new generation
+    DELIVER(CarGeneration.NEW),
+    DROP(null);
+
+    private static final @NotNull Logger log = LoggerFactory.getLogger(FailurePolicy.class);
+
+    private final CarGeneration fallbackGeneration;
+
+    FailurePolicy(CarGeneration fallbackGeneration) {
+        this.fallbackGeneration = fallbackGeneration;
+    }
+
+    public CarGeneration getFallbackGeneration() {
+        return fallbackGeneration;
+    }
+
+    public static FailurePolicy fromName(final String name) {
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            log.error("Unknown failure policy '{}', dropping publishes if generation can not be looked up.", name);
+            return DROP;
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package org.extension.cache;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import org.extension.config.PropertiesHolder;
+import org.extension.dao.CarGeneration;
+import org.extension.dao.CarInfoDAO;
+import org.extension.dao.CircuitBreakerOpenException;
+import org.extension.dao.GenerationLoader;
+import org.extension.dao.GenerationLookupBatcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded cache of car generations in front of {@link CarInfoDAO}. Unknown client ids are cached with a shorter TTL,
+ * DB errors are never cached. If DB can not be queried, expired entries are served as last known generation.
+ */
+public class GenerationCache implements GenerationResolver {
+    private static final @NotNull Logger log = LoggerFactory.getLogger(GenerationCache.class);
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, CompletableFuture<CarGeneration>> inFlight = new ConcurrentHashMap<>();
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
+    private final GenerationLookupBatcher lookupBatcher;
+    private final Executor refreshExecutor;
+    private final LongSupplier nanoTicker;
+
+    // applied live on configuration reload
+    private volatile int maxSize;
+    private volatile long ttlNanos;
+    private volatile long negativeTtlNanos;
+    private volatile long refreshAfterNanos;
+    private volatile FailurePolicy failurePolicy;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+
+    public GenerationCache(GenerationLookupBatcher lookupBatcher, PropertiesHolder propertiesHolder,
+                           Executor refreshExecutor) {
+        this(lookupBatcher, propertiesHolder, refreshExecutor, System::nanoTime);
+    }
+
+    GenerationCache(GenerationLookupBatcher lookupBatcher, PropertiesHolder propertiesHolder,
+                    Executor refreshExecutor, LongSupplier nanoTicker) {
+        this.lookupBatcher = lookupBatcher;
+        this.refreshExecutor = refreshExecutor;
+        this.nanoTicker = nanoTicker;
+        reconfigure(propertiesHolder);
+    }
+
+    // cached entries keep their expiry, a smaller size limit evicts right away
+    public void reconfigure(final PropertiesHolder propertiesHolder) {
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(propertiesHolder.getCacheTtl());
+        this.negativeTtlNanos = TimeUnit.SECONDS.toNanos(propertiesHolder.getCacheNegativeTtl());
+        this.refreshAfterNanos = TimeUnit.SECONDS.toNanos(propertiesHolder.getCacheRefreshAfter());
+        this.failurePolicy = FailurePolicy.fromName(propertiesHolder.getFailurePolicy());
+        this.maxSize = propertiesHolder.getCacheMaxSize();
+        evictIfNeeded();
+    }
+
+    @Override
+    public CarGeneration getGeneration(final String clientId) {
+        final var cached = getGenerationIfKnown(clientId);
+        if (cached != null) {
+            return cached;
+        }
+
+        misses.increment();
+        try {
+            return load(clientId, false);
+        } catch (SQLException e) {
+            return onLookupFailure(clientId, e);
+        }
+    }
+
+    // never completes exceptionally
+    @Override
+    public CompletableFuture<CarGeneration> getGenerationAsync(final String clientId) {
+        final var cached = getGenerationIfKnown(clientId);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        misses.increment();
+        return loadAsync(clientId, false)
+                .handle((generation, e) -> e == null ? generation : onLookupFailure(clientId, unwrap(e)));
+    }
+
+    @Override
+    public CarGeneration getGenerationIfKnown(final String clientId) {
+        final long now = nanoTicker.getAsLong();
+        final Entry entry = entries.get(clientId);
+
+        if (entry != null && now - entry.expiresAt < 0) {
+            hits.increment();
+            if (entry.generation != CarGeneration.UNKNOWN && now - entry.refreshAt >= 0) {
+                refreshInBackground(clientId);
+            }
+            return entry.generation;
+        }
+        return null;
+    }
+
+    public void invalidate(final String clientId) {
+        entries.remove(clientId);
+    }
+
+    @Override
+    public void apply(final String clientId, final CarGeneration generation) {
+        if (generation == CarGeneration.UNKNOWN) {
+            invalidate(clientId);
+        } else {
+            put(clientId, generation);
+        }
+    }
+
+    // expired entries included, they are still served as last known generation
+    @Override
+    public void forEachKnown(final BiConsumer<String, CarGeneration> consumer) {
+        entries.forEach((clientId, entry) -> {
+            if (entry.generation != CarGeneration.UNKNOWN) {
+                consumer.accept(clientId, entry.generation);
+            }
+        });
+    }
+
+    // restored entries may be outdated, so they start expired and only answer as last known generation
+    @Override
+    public <E extends Exception> void restore(final GenerationLoader<E> loader) throws E {
+        loader.load((clientId, generation) -> {
+            if (generation != CarGeneration.UNKNOWN && maxSize > 0 && !entries.containsKey(clientId)) {
+                final long now = nanoTicker.getAsLong();
+                entries.put(clientId, new Entry(generation, now, now));
+                evictIfNeeded();
+            }
+        });
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public long getRefreshCount() {
+        return refreshes.sum();
+    }
+
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    public long getStaleHitCount() {
+        return staleHits.sum();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private CarGeneration getLastKnownGeneration(final String clientId) {
+        final Entry expired = entries.get(clientId);
+        if (expired != null) {
+            staleHits.increment();
+            return expired.generation;
+        }
+        return failurePolicy.getFallbackGeneration();
+    }
+
+    private CarGeneration load(final String clientId, final boolean reload) throws SQLException {
+        try {
+            return loadAsync(clientId, reload).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private CompletableFuture<CarGeneration> loadAsync(final String clientId, final boolean reload) {
+        final var pending = new CompletableFuture<CarGeneration>();
+        final var existing = inFlight.putIfAbsent(clientId, pending);
+        if (existing != null) {
+            coalesced.increment();
+            return existing;
+        }
+
+        // another caller may have completed the query between our cache miss and joining the flight
+        final Entry entry = reload ? null : entries.get(clientId);
+        if (entry != null && nanoTicker.getAsLong() - entry.expiresAt < 0) {
+            inFlight.remove(clientId, pending);
+            pending.complete(entry.generation);
+            return pending;
+        }
+
+        lookupBatcher.submit(clientId).whenComplete((generation, e) -> {
+            if (e == null) {
+                put(clientId, generation);
+            }
+            inFlight.remove(clientId, pending);
+            if (e == null) {
+                pending.complete(generation);
+            } else {
+                pending.completeExceptionally(unwrap(e));
+            }
+        });
+        return pending;
+    }
+
+    private CarGeneration onLookupFailure(final String clientId, final Throwable e) {
+        if (e instanceof CircuitBreakerOpenException) {
+            log.debug("DB is not queried for clientID {}, circuit breaker is open.", clientId);
+        } else if (e instanceof RejectedExecutionException) {
+            log.debug("Generation lookup for clientID {} rejected, too many lookups are waiting.", clientId);
+        } else {
+            log.error("Exception during looking up generation for clientID {}.", clientId, e);
+        }
+        return getLastKnownGeneration(clientId);
+    }
+
+    private static Throwable unwrap(final Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+
+    private void put(final String clientId, final CarGeneration generation) {
+        if (maxSize <= 0) {
+            return;
+        }
+        final long now = nanoTicker.getAsLong();
+        final Entry entry = generation == CarGeneration.UNKNOWN
+                ? new Entry(generation, now + negativeTtlNanos, now + negativeTtlNanos)
+                : new Entry(generation, now + ttlNanos, now + refreshAfterNanos);
+        entries.put(clientId, entry);
+        evictIfNeeded();
+    }
+
+    // cheap approximation of random eviction
+    private void evictIfNeeded() {
+        var iterator = entries.keySet().iterator();
+        while (entries.size() > maxSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+
+    private void refreshInBackground(final String clientId) {
+        if (!refreshing.add(clientId)) {
+            return;
+        }
+        try {
+            // not awaited, so the refresh never blocks a thread of the executor which may run the query itself
+            refreshExecutor.execute(() -> loadAsync(clientId, true).whenComplete((generation, e) -> {
+                refreshing.remove(clientId);
+                if (e == null) {
+                    refreshes.increment();
+                } else if (e instanceof CircuitBreakerOpenException) {
+                    log.debug("Refresh of clientID {} skipped, circuit breaker is open.", clientId);
+                } else if (e instanceof RejectedExecutionException) {
+                    log.debug("Refresh of clientID {} shed, too many lookups are waiting for DB.", clientId);
+                } else {
+                    // keep serving the current entry until it expires
+                    log.warn("Exception during refreshing generation for clientID {}.", clientId, e);
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(clientId);
+            log.debug("Refresh of clientID {} rejected by executor.", clientId);
+        }
+    }
+
+    private static class Entry {
+        private final CarGeneration generation;
+        private final long expiresAt;
+        private final long refreshAt;
+
+        private Entry(CarGeneration generation, long expiresAt, long refreshAt) {
+            this.generation = generation;
+            this.expiresAt = expiresAt;
+            this.refreshAt = refreshAt;
+        }
+    }
+}
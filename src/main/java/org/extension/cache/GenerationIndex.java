@@ -0,0 +1,178 @@
+package org.extension.cache;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import org.extension.dao.CarGeneration;
+import org.extension.dao.GenerationLoader;
+import org.extension.dao.GenerationTable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Complete in-memory copy of the generation table, so the hot path needs no DB access at all.
+ * Table and overlay of incremental updates are published together, so reads never take a lock and never see
+ * the overlay of another table. Until the first bulk load completed, the fallback resolver answers.
+ */
+public class GenerationIndex implements GenerationResolver {
+    private static final @NotNull Logger log = LoggerFactory.getLogger(GenerationIndex.class);
+
+    private static final int MIN_OVERLAY_SIZE_TO_MERGE = 1024;
+
+    private final GenerationResolver fallback;
+    private final Object writeLock = new Object();
+
+    private volatile State state = new State(null, new ConcurrentHashMap<>(), false);
+    // updates applied while a bulk load runs, guarded by writeLock
+    private Map<String, CarGeneration> updatesDuringLoad;
+
+    public GenerationIndex(GenerationResolver fallback) {
+        this.fallback = fallback;
+    }
+
+    @Override
+    public CarGeneration getGeneration(final String clientId) {
+        final var indexed = getIndexedGeneration(state, clientId);
+        return indexed != null ? indexed : fallback.getGeneration(clientId);
+    }
+
+    @Override
+    public CompletableFuture<CarGeneration> getGenerationAsync(final String clientId) {
+        final var indexed = getIndexedGeneration(state, clientId);
+        return indexed != null ? CompletableFuture.completedFuture(indexed) : fallback.getGenerationAsync(clientId);
+    }
+
+    @Override
+    public CarGeneration getGenerationIfKnown(final String clientId) {
+        final var indexed = getIndexedGeneration(state, clientId);
+        return indexed != null ? indexed : fallback.getGenerationIfKnown(clientId);
+    }
+
+    @Override
+    public void apply(final String clientId, final CarGeneration generation) {
+        // the fallback answers until the first bulk load completed
+        fallback.apply(clientId, generation);
+        update(clientId, generation);
+    }
+
+    @Override
+    public void forEachKnown(final BiConsumer<String, CarGeneration> consumer) {
+        final var current = state;
+        if (current.table == null) {
+            fallback.forEachKnown(consumer);
+            return;
+        }
+        current.table.forEach((clientId, generation) -> {
+            if (!current.overlay.containsKey(clientId)) {
+                consumer.accept(clientId, generation);
+            }
+        });
+        current.overlay.forEach((clientId, generation) -> {
+            if (generation != CarGeneration.UNKNOWN) {
+                consumer.accept(clientId, generation);
+            }
+        });
+    }
+
+    @Override
+    public <E extends Exception> void restore(final GenerationLoader<E> loader) throws E {
+        if (state.table == null) {
+            load(loader, true);
+        }
+    }
+
+    // restored generations do not count
+    public boolean isLoaded() {
+        final var current = state;
+        return current.table != null && !current.restored;
+    }
+
+    public int size() {
+        final var current = state;
+        return current.table == null ? 0 : current.table.size() + current.overlay.size();
+    }
+
+    // updates applied while the loader runs are kept on top of it
+    public <E extends Exception> void replaceAll(final GenerationLoader<E> loader) throws E {
+        load(loader, false);
+    }
+
+    private <E extends Exception> void load(final GenerationLoader<E> loader, final boolean restored) throws E {
+        final Map<String, CarGeneration> updates = new HashMap<>();
+        synchronized (writeLock) {
+            updatesDuringLoad = updates;
+        }
+        final var builder = new GenerationTable.Builder();
+        final GenerationTable loaded;
+        try {
+            loader.load(builder::put);
+            loaded = builder.build();
+        } finally {
+            synchronized (writeLock) {
+                if (updatesDuringLoad == updates) {
+                    updatesDuringLoad = null;
+                }
+            }
+        }
+        synchronized (writeLock) {
+            if (restored && state.table != null) {
+                // a bulk load completed meanwhile
+                return;
+            }
+            state = new State(loaded, new ConcurrentHashMap<>(updates), restored);
+        }
+        log.info("{} generations of {} cars into index.", restored ? "Restored" : "Loaded", loaded.size());
+    }
+
+    public void update(final String clientId, final CarGeneration generation) {
+        synchronized (writeLock) {
+            if (updatesDuringLoad != null) {
+                updatesDuringLoad.put(clientId, generation);
+            }
+            final var current = state;
+            if (current.table == null) {
+                return;
+            }
+            current.overlay.put(clientId, generation);
+            if (current.overlay.size() > Math.max(MIN_OVERLAY_SIZE_TO_MERGE, current.table.size() / 8)) {
+                mergeOverlay(current);
+            }
+        }
+    }
+
+    private void mergeOverlay(final State current) {
+        final var builder = new GenerationTable.Builder();
+        current.table.forEach(builder::put);
+        current.overlay.forEach(builder::put);
+        // writers hold the lock, so no update can get lost between building and publishing the merged table
+        state = new State(builder.build(), new ConcurrentHashMap<>(), current.restored);
+    }
+
+    // null if the fallback resolver has to answer
+    private static CarGeneration getIndexedGeneration(final State current, final String clientId) {
+        if (current.table == null) {
+            return null;
+        }
+        final var updated = current.overlay.get(clientId);
+        final var generation = updated != null ? updated : current.table.get(clientId);
+        // a restored snapshot may miss cars added since it was saved
+        return current.restored && generation == CarGeneration.UNKNOWN ? null : generation;
+    }
+
+    private static class State {
+        private final GenerationTable table;
+        private final ConcurrentHashMap<String, CarGeneration> overlay;
+        // restored from a snapshot, not loaded from the generation source
+        private final boolean restored;
+
+        private State(GenerationTable table, ConcurrentHashMap<String, CarGeneration> overlay, boolean restored) {
+            this.table = table;
+            this.overlay = overlay;
+            this.restored = restored;
+        }
+    }
+}
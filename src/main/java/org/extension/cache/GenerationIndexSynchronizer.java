@@ -0,0 +1,96 @@
+package org.extension.cache;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import org.extension.config.PropertiesHolder;
+import org.extension.dao.GenerationSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps {@link GenerationIndex} in sync with the generation source: one bulk load at start, then periodic polling
+ * of rows with a newer "updated_at" value. The bulk load runs on the scheduler, so starting does not wait for DB.
+ * <p>
+ * Polling only sees inserted and updated rows, deleted rows are dropped from the index by a periodic full reload.
+ */
+public class GenerationIndexSynchronizer {
+    private static final @NotNull Logger log = LoggerFactory.getLogger(GenerationIndexSynchronizer.class);
+
+    // rows committed late may carry an "updated_at" slightly older than the previous poll
+    private static final long OVERLAP_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private final GenerationSource generationSource;
+    private final GenerationIndex generationIndex;
+    private final long syncIntervalSeconds;
+    private final long fullReloadIntervalNanos;
+
+    private volatile Timestamp lastSync;
+    private volatile long lastFullLoadNanos;
+    private ScheduledFuture<?> scheduledSync;
+
+    public GenerationIndexSynchronizer(GenerationSource generationSource, GenerationIndex generationIndex,
+                                       PropertiesHolder propertiesHolder) {
+        this.generationSource = generationSource;
+        this.generationIndex = generationIndex;
+        this.syncIntervalSeconds = propertiesHolder.getPreloadSyncInterval();
+        this.fullReloadIntervalNanos = TimeUnit.SECONDS.toNanos(propertiesHolder.getPreloadFullReloadInterval());
+    }
+
+    public boolean loadAll() {
+        final long start = System.nanoTime();
+        try {
+            generationIndex.replaceAll(consumer -> lastSync = generationSource.loadAllGenerations(consumer));
+            lastFullLoadNanos = start;
+            return true;
+        } catch (SQLException e) {
+            log.error("Exception during loading generations into index.", e);
+            return false;
+        } catch (RuntimeException e) {
+            // an exception would cancel the periodic task
+            log.error("Unexpected exception during loading generations into index.", e);
+            return false;
+        }
+    }
+
+    public void start(final ScheduledExecutorService scheduler) {
+        // the first sync loads the whole table, a failed bulk load is retried by the next one
+        if (syncIntervalSeconds > 0) {
+            scheduledSync = scheduler.scheduleWithFixedDelay(this::sync, 0, syncIntervalSeconds, TimeUnit.SECONDS);
+        } else {
+            scheduledSync = scheduler.schedule(this::loadAll, 0, TimeUnit.SECONDS);
+        }
+    }
+
+    public void stop() {
+        if (scheduledSync != null) {
+            scheduledSync.cancel(false);
+        }
+    }
+
+    void sync() {
+        final var since = lastSync;
+        final boolean fullReloadDue = fullReloadIntervalNanos > 0
+                && System.nanoTime() - lastFullLoadNanos >= fullReloadIntervalNanos;
+        if (since == null || fullReloadDue) {
+            loadAll();
+            return;
+        }
+        try {
+            var latest = generationSource.findGenerationsUpdatedSince(
+                    new Timestamp(since.getTime() - OVERLAP_MILLIS), generationIndex::update);
+            if (latest.after(since)) {
+                lastSync = latest;
+            }
+        } catch (SQLException e) {
+            log.warn("Exception during polling updated generations, index may be stale.", e);
+        } catch (RuntimeException e) {
+            // an exception would cancel the periodic task
+            log.error("Unexpected exception during polling updated generations.", e);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package org.extension.cache;
+
+import org.extension.dao.CarGeneration;
+import org.extension.dao.GenerationLoader;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+
+/**
+ * Answers which generation a car belongs to, for the interceptors.
+ */
+public interface GenerationResolver {
+
+    // null if it could not be looked up
+    CarGeneration getGeneration(String clientId);
+
+    // never blocks, null if it is not known without a DB lookup
+    CarGeneration getGenerationIfKnown(String clientId);
+
+    // the default blocks the caller
+    default CompletableFuture<CarGeneration> getGenerationAsync(final String clientId) {
+        return CompletableFuture.completedFuture(getGeneration(clientId));
+    }
+
+    // UNKNOWN forgets the client id
+    default void apply(final String clientId, final CarGeneration generation) {
+    }
+
+    default void forEachKnown(final BiConsumer<String, CarGeneration> consumer) {
+    }
+
+    default <E extends Exception> void restore(final GenerationLoader<E> loader) throws E {
+        loader.load(this::apply);
+    }
+}
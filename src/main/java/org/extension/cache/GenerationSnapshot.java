@@ -0,0 +1,55 @@
+package org.extension.cache;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import org.extension.dao.MappedFileGenerationSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Generations known on stop, saved as memory mapped generation file, so the next start answers known cars
+ * without waiting for DB.
+ * <p>
+ * A snapshot only warms up the resolver: restored generations are replaced by DB lookups and bulk loads as usual.
+ */
+public class GenerationSnapshot {
+    private static final @NotNull Logger log = LoggerFactory.getLogger(GenerationSnapshot.class);
+
+    private final Path file;
+
+    public GenerationSnapshot(Path file) {
+        this.file = file;
+    }
+
+    public int restore(final GenerationResolver generationResolver) {
+        if (!Files.isRegularFile(file)) {
+            return 0;
+        }
+        try {
+            // read, not mapped: a mapping would only be released once garbage collected
+            final int[] count = {0};
+            generationResolver.restore(consumer -> count[0] = MappedFileGenerationSource.read(file, consumer));
+            log.info("Restored generations of {} cars from snapshot '{}'.", count[0], file);
+            return count[0];
+        } catch (IOException | RuntimeException e) {
+            // starting cold is slower, but not wrong
+            log.warn("Exception during restoring generations from snapshot '{}'.", file, e);
+            return 0;
+        }
+    }
+
+    // returns -1 if the snapshot could not be written
+    public int save(final GenerationResolver generationResolver) {
+        try {
+            final int count = MappedFileGenerationSource.write(file, generationResolver::forEachKnown);
+            log.info("Saved generations of {} cars to snapshot '{}'.", count, file);
+            return count;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Exception during saving generations to snapshot '{}'.", file, e);
+            return -1;
+        }
+    }
+}
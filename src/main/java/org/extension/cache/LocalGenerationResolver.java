@@ -0,0 +1,38 @@
+package org.extension.cache;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import org.extension.dao.CarGeneration;
+import org.extension.dao.GenerationSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+
+/**
+ * Answers straight from a {@link GenerationSource#isLocal() local} source, which needs neither caching nor
+ * batching and is cheap enough to be asked on broker threads.
+ */
+public class LocalGenerationResolver implements GenerationResolver {
+    private static final @NotNull Logger log = LoggerFactory.getLogger(LocalGenerationResolver.class);
+
+    private final GenerationSource generationSource;
+
+    public LocalGenerationResolver(GenerationSource generationSource) {
+        this.generationSource = generationSource;
+    }
+
+    @Override
+    public CarGeneration getGeneration(final String clientId) {
+        return getGenerationIfKnown(clientId);
+    }
+
+    @Override
+    public CarGeneration getGenerationIfKnown(final String clientId) {
+        try {
+            return generationSource.findGeneration(clientId);
+        } catch (SQLException e) {
+            log.error("Exception during looking up generation for clientID {}.", clientId, e);
+            return null;
+        }
+    }
+}
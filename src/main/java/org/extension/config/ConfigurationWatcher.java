@@ -0,0 +1,105 @@
+package org.extension.config;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Reloads {@link PropertiesHolder} whenever the configuration file in the extension home folder changes, so settings
+ * can be changed without restarting the extension.
+ * <p>
+ * Values read from {@link PropertiesHolder} on every use take effect right away. Components which keep settings
+ * in fields register a listener to apply them. The watch service is polled, so no executor thread is blocked.
+ */
+public class ConfigurationWatcher {
+    private static final @NotNull Logger log = LoggerFactory.getLogger(ConfigurationWatcher.class);
+
+    private static final long POLL_INTERVAL_MILLIS = 1000;
+
+    private final PropertiesHolder propertiesHolder;
+    private final File extensionHomeFolder;
+    private final List<Consumer<PropertiesHolder>> listeners = new CopyOnWriteArrayList<>();
+
+    private WatchService watchService;
+    private ScheduledFuture<?> scheduledPoll;
+
+    public ConfigurationWatcher(PropertiesHolder propertiesHolder, File extensionHomeFolder) {
+        this.propertiesHolder = propertiesHolder;
+        this.extensionHomeFolder = extensionHomeFolder;
+    }
+
+    // listeners are called on the thread of the scheduler
+    public void addListener(final Consumer<PropertiesHolder> listener) {
+        listeners.add(listener);
+    }
+
+    public void start(final ScheduledExecutorService scheduler) throws IOException {
+        watchService = FileSystems.getDefault().newWatchService();
+        // editors often save by replacing the file, which is reported as creation
+        extensionHomeFolder.toPath().register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        scheduledPoll = scheduler.scheduleWithFixedDelay(
+                this::poll, POLL_INTERVAL_MILLIS, POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        if (scheduledPoll != null) {
+            scheduledPoll.cancel(false);
+        }
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                log.warn("Exception during closing configuration watch service.", e);
+            }
+        }
+    }
+
+    void poll() {
+        try {
+            final WatchKey key = watchService.poll();
+            if (key == null) {
+                return;
+            }
+            // one reload covers all events of this poll
+            final boolean changed = key.pollEvents().stream()
+                    .anyMatch(event -> Path.of(PropertiesHolder.CONFIGURATION_FILE).equals(event.context()));
+            key.reset();
+            if (changed) {
+                reload();
+            }
+        } catch (RuntimeException e) {
+            // an exception would cancel the periodic task
+            log.error("Unexpected exception during watching configuration file.", e);
+        }
+    }
+
+    private void reload() {
+        if (!propertiesHolder.tryToLoadProperties(extensionHomeFolder)) {
+            log.warn("Keeping previous configuration.");
+            return;
+        }
+        log.info("Reloaded configuration from '{}'.", PropertiesHolder.CONFIGURATION_FILE);
+        for (Consumer<PropertiesHolder> listener : listeners) {
+            try {
+                listener.accept(propertiesHolder);
+            } catch (RuntimeException e) {
+                log.error("Exception during applying reloaded configuration.", e);
+            }
+        }
+    }
+}
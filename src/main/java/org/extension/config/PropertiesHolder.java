@@ -7,7 +7,14 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 
 public class PropertiesHolder {
     private static final @NotNull Logger log = LoggerFactory.getLogger(PropertiesHolder.class);
@@ -18,59 +25,508 @@ public class PropertiesHolder {
     private static final String USER = "user";
     private static final String PASSWORD = "password";
     private static final String POOL_SIZE = "poolSize";
+    private static final String POOL_MIN_IDLE = "poolMinIdle"; // defaults to poolSize
+    private static final String POOL_CONNECTION_TIMEOUT = "poolConnectionTimeoutInMillis";
+    private static final String POOL_CONNECTION_TEST_QUERY = "poolConnectionTestQuery"; // empty uses JDBC4 isValid
+    private static final String POOL_LEAK_DETECTION_THRESHOLD = "poolLeakDetectionThresholdInMillis"; // 0 disables
+    private static final String PREPARE_THRESHOLD = "prepareThreshold"; // 0 disables server side prepared statements
+    private static final String STATEMENT_CACHE_QUERIES = "statementCacheQueries";
+    private static final String STATEMENT_CACHE_SIZE = "statementCacheSizeInMiB";
 
     // Fancy Cars Outbound Interceptor timeout
     private static final String OUTBOUND_INTERCEPTOR_TIMEOUT = "timeoutInSeconds";
+    private static final String TRANSFORMATION_MODE = "transformationMode"; // "outbound" or "inbound"
 
-    private Properties properties;
+    // Topic routing properties
+    private static final String TOPIC_PREFIX = "topicPrefix";
+    private static final String TOPIC_ROUTES = "topicRoutes"; // "<last topic level>:<transformer>" pairs, in order
 
+    // Generation control topic properties
+    private static final String CONTROL_TOPIC = "controlTopic";
+    private static final String CONTROL_CLIENT_IDS = "controlClientIds"; // empty disables the control topic
+
+    // Transformed payload cache properties
+    private static final String PAYLOAD_CACHE_MAX_BYTES = "payloadCacheMaxBytes"; // 0 disables
+    private static final String PAYLOAD_CACHE_MAX_PAYLOAD_SIZE = "payloadCacheMaxPayloadSize";
+
+    // Temperature conflation properties
+    private static final String CONFLATION_INTERVAL = "conflationIntervalInMillis"; // 0 disables
+    private static final String CONFLATION_DELTA = "conflationDelta";
+    private static final String CONFLATION_ROUTES = "conflationRoutes";
+
+    // Binary payload encoding properties
+    private static final String BINARY_ENCODING_ROUTES = "binaryEncodingRoutes"; // empty disables
+
+    // Generation source properties
+    private static final String GENERATION_SOURCE = "generationSource"; // "jdbc", "file" or "mmap"
+    private static final String GENERATION_SOURCE_FILE = "generationSourceFile";
+    private static final String SNAPSHOT_FILE = "snapshotFile"; // empty starts without snapshot
+
+    // Generation cache properties
+    private static final String CACHE_MAX_SIZE = "cacheMaxSize"; // 0 disables
+    private static final String CACHE_TTL = "cacheTtlInSeconds";
+    private static final String CACHE_NEGATIVE_TTL = "cacheNegativeTtlInSeconds";
+    private static final String CACHE_REFRESH_AFTER = "cacheRefreshAfterInSeconds";
+
+    // Batched DB lookups properties
+    private static final String LOOKUP_BATCH_SIZE = "lookupBatchSize"; // 1 disables batching
+    private static final String LOOKUP_BATCH_DELAY = "lookupBatchDelayInMicros";
+
+    // Preloaded generation index properties
+    private static final String PRELOAD_ENABLED = "preloadEnabled";
+    private static final String PRELOAD_SYNC_INTERVAL = "preloadSyncIntervalInSeconds"; // 0 disables polling
+    private static final String PRELOAD_FULL_RELOAD_INTERVAL = "preloadFullReloadIntervalInSeconds"; // 0 disables
+
+    // Dedicated executor for DB lookups properties
+    private static final String LOOKUP_MODE = "lookupMode"; // "async" or "blocking"
+    private static final String LOOKUP_EXECUTOR = "lookupExecutor"; // "pool" or "virtual" (JDK 21+)
+    private static final String LOOKUP_THREADS = "lookupThreads";
+    private static final String LOOKUP_QUEUE_SIZE = "lookupQueueSize";
+
+    // Circuit breaker around DB lookups properties
+    private static final String CIRCUIT_BREAKER_FAILURE_THRESHOLD = "circuitBreakerFailureThreshold"; // 0 disables
+    private static final String CIRCUIT_BREAKER_SLOW_CALL = "circuitBreakerSlowCallInMillis";
+    private static final String CIRCUIT_BREAKER_OPEN_DURATION = "circuitBreakerOpenInSeconds";
+    private static final String FAILURE_POLICY = "failurePolicy"; // "drop" or "deliver"
+
+    // Adaptive concurrency limit of DB lookups properties
+    private static final String CONCURRENCY_MIN_LIMIT = "lookupConcurrencyMinLimit";
+    private static final String CONCURRENCY_MAX_LIMIT = "lookupConcurrencyMaxLimit"; // defaults to poolSize, 0 disables
+    private static final String CONCURRENCY_LATENCY_TOLERANCE = "lookupConcurrencyLatencyTolerance";
+    private static final String CONCURRENCY_MAX_WAIT = "lookupConcurrencyMaxWaitInMillis";
+
+    public static final String CONFIGURATION_FILE = "app.properties";
+
+    // immutable, replaced as a whole on reload so getters never see a half loaded configuration
+    private volatile Values values = new Values(Map.of());
+
+    /**
+     * Loads the configuration file. If it can not be read or any of its values is invalid, the previously loaded
+     * configuration is kept.
+     */
     public boolean tryToLoadProperties(File extensionHomeFolder) {
-        final File file = new File(extensionHomeFolder + File.separator + "app.properties");
+        final File file = new File(extensionHomeFolder + File.separator + CONFIGURATION_FILE);
 
         try {
             loadProperties(file);
         } catch (IOException e) {
             log.error("Not able to load configuration file '{}'", file.getAbsolutePath());
             return false;
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid configuration file '{}': {}", file.getAbsolutePath(), e.getMessage());
+            return false;
         }
         return true;
     }
 
+    /**
+     * @throws IllegalArgumentException if any of the values is invalid
+     */
+    public static PropertiesHolder of(final Map<String, String> values) {
+        final var propertiesHolder = new PropertiesHolder();
+        propertiesHolder.values = new Values(Map.copyOf(values));
+        return propertiesHolder;
+    }
+
     public String getUrl() {
-        Object server = properties.get(JDBC_URL);
-        return server != null ? server.toString() : "";
+        return values.url;
     }
 
     public String getDriver() {
-        Object port = properties.get(DRIVER);
-        return port != null ? port.toString() : "";
+        return values.driver;
     }
 
     public String getUser() {
-        Object user = properties.get(USER);
-        return user != null ? user.toString() : "";
+        return values.user;
     }
 
     public String getPassword() {
-        Object password = properties.get(PASSWORD);
-        return password != null ? password.toString() : "";
+        return values.password;
     }
 
     public int getPoolSize() {
-        Object poolSize = properties.get(POOL_SIZE);
-        return poolSize != null ? Integer.parseInt(poolSize.toString()) : 1;
+        return values.poolSize;
+    }
+
+    public int getPoolMinIdle() {
+        return values.poolMinIdle;
+    }
+
+    public long getPoolConnectionTimeout() {
+        return values.poolConnectionTimeout;
+    }
+
+    public String getPoolConnectionTestQuery() {
+        return values.poolConnectionTestQuery;
+    }
+
+    public long getPoolLeakDetectionThreshold() {
+        return values.poolLeakDetectionThreshold;
+    }
+
+    public int getPrepareThreshold() {
+        return values.prepareThreshold;
+    }
+
+    public int getStatementCacheQueries() {
+        return values.statementCacheQueries;
+    }
+
+    public int getStatementCacheSize() {
+        return values.statementCacheSize;
     }
 
     public int getInterceptorTimeout() {
-        Object timeout = properties.get(OUTBOUND_INTERCEPTOR_TIMEOUT);
-        return timeout != null ? Integer.parseInt(timeout.toString()) : 10;
+        return values.interceptorTimeout;
+    }
+
+    public boolean isInboundTransformation() {
+        return values.inboundTransformation;
+    }
+
+    public String getTopicPrefix() {
+        return values.topicPrefix;
+    }
+
+    public Map<String, String> getTopicRoutes() {
+        return values.topicRoutes;
+    }
+
+    public String getControlTopic() {
+        return values.controlTopic;
+    }
+
+    public Set<String> getControlClientIds() {
+        return values.controlClientIds;
+    }
+
+    public long getPayloadCacheMaxBytes() {
+        return values.payloadCacheMaxBytes;
+    }
+
+    public int getPayloadCacheMaxPayloadSize() {
+        return values.payloadCacheMaxPayloadSize;
+    }
+
+    public long getConflationInterval() {
+        return values.conflationInterval;
+    }
+
+    public double getConflationDelta() {
+        return values.conflationDelta;
+    }
+
+    public Set<String> getConflationRoutes() {
+        return values.conflationRoutes;
+    }
+
+    public Set<String> getBinaryEncodingRoutes() {
+        return values.binaryEncodingRoutes;
+    }
+
+    public String getGenerationSource() {
+        return values.generationSource;
+    }
+
+    public String getGenerationSourceFile() {
+        return values.generationSourceFile;
+    }
+
+    public String getSnapshotFile() {
+        return values.snapshotFile;
+    }
+
+    public int getCacheMaxSize() {
+        return values.cacheMaxSize;
+    }
+
+    public long getCacheTtl() {
+        return values.cacheTtl;
+    }
+
+    public long getCacheNegativeTtl() {
+        return values.cacheNegativeTtl;
+    }
+
+    public long getCacheRefreshAfter() {
+        return values.cacheRefreshAfter;
+    }
+
+    public int getLookupBatchSize() {
+        return values.lookupBatchSize;
+    }
+
+    public long getLookupBatchDelay() {
+        return values.lookupBatchDelay;
+    }
+
+    public boolean isPreloadEnabled() {
+        return values.preloadEnabled;
+    }
+
+    public long getPreloadSyncInterval() {
+        return values.preloadSyncInterval;
+    }
+
+    public long getPreloadFullReloadInterval() {
+        return values.preloadFullReloadInterval;
+    }
+
+    public boolean isAsyncLookup() {
+        return values.asyncLookup;
+    }
+
+    public String getLookupExecutor() {
+        return values.lookupExecutor;
+    }
+
+    public int getLookupThreads() {
+        return values.lookupThreads;
+    }
+
+    public int getLookupQueueSize() {
+        return values.lookupQueueSize;
+    }
+
+    public int getCircuitBreakerFailureThreshold() {
+        return values.circuitBreakerFailureThreshold;
+    }
+
+    public long getCircuitBreakerSlowCall() {
+        return values.circuitBreakerSlowCall;
+    }
+
+    public long getCircuitBreakerOpenDuration() {
+        return values.circuitBreakerOpenDuration;
+    }
+
+    public int getConcurrencyMinLimit() {
+        return values.concurrencyMinLimit;
+    }
+
+    public int getConcurrencyMaxLimit() {
+        return values.concurrencyMaxLimit;
+    }
+
+    public double getConcurrencyLatencyTolerance() {
+        return values.concurrencyLatencyTolerance;
+    }
+
+    public long getConcurrencyMaxWait() {
+        return values.concurrencyMaxWait;
+    }
+
+    public String getFailurePolicy() {
+        return values.failurePolicy;
     }
 
     private void loadProperties(final @NotNull File file) throws IOException {
 
         try (final FileReader in = new FileReader(file)) {
-            properties = new Properties();
-            properties.load(in);
+            final var loaded = new Properties();
+            loaded.load(in);
+            values = new Values(Map.copyOf(loaded));
+        }
+    }
+
+    // parsed and validated once on load, so an invalid value rejects the whole configuration
+    private static final class Values {
+        private final String url;
+        private final String driver;
+        private final String user;
+        private final String password;
+        private final int poolSize;
+        private final int poolMinIdle;
+        private final long poolConnectionTimeout;
+        private final String poolConnectionTestQuery;
+        private final long poolLeakDetectionThreshold;
+        private final int prepareThreshold;
+        private final int statementCacheQueries;
+        private final int statementCacheSize;
+        private final int interceptorTimeout;
+        private final boolean inboundTransformation;
+        private final String topicPrefix;
+        private final Map<String, String> topicRoutes;
+        private final String controlTopic;
+        private final Set<String> controlClientIds;
+        private final long payloadCacheMaxBytes;
+        private final int payloadCacheMaxPayloadSize;
+        private final long conflationInterval;
+        private final double conflationDelta;
+        private final Set<String> conflationRoutes;
+        private final Set<String> binaryEncodingRoutes;
+        private final String generationSource;
+        private final String generationSourceFile;
+        private final String snapshotFile;
+        private final int cacheMaxSize;
+        private final long cacheTtl;
+        private final long cacheNegativeTtl;
+        private final long cacheRefreshAfter;
+        private final int lookupBatchSize;
+        private final long lookupBatchDelay;
+        private final boolean preloadEnabled;
+        private final long preloadSyncInterval;
+        private final long preloadFullReloadInterval;
+        private final boolean asyncLookup;
+        private final String lookupExecutor;
+        private final int lookupThreads;
+        private final int lookupQueueSize;
+        private final int circuitBreakerFailureThreshold;
+        private final long circuitBreakerSlowCall;
+        private final long circuitBreakerOpenDuration;
+        private final int concurrencyMinLimit;
+        private final int concurrencyMaxLimit;
+        private final double concurrencyLatencyTolerance;
+        private final long concurrencyMaxWait;
+        private final String failurePolicy;
+
+        private Values(final Map<Object, Object> properties) {
+            url = getString(properties, JDBC_URL, "");
+            driver = getString(properties, DRIVER, "");
+            user = getString(properties, USER, "");
+            password = getString(properties, PASSWORD, "");
+            poolSize = getInt(properties, POOL_SIZE, 1, 1);
+            poolMinIdle = getInt(properties, POOL_MIN_IDLE, poolSize, 0);
+            poolConnectionTimeout = getLong(properties, POOL_CONNECTION_TIMEOUT, 30_000);
+            poolConnectionTestQuery = getString(properties, POOL_CONNECTION_TEST_QUERY, "").trim();
+            poolLeakDetectionThreshold = getLong(properties, POOL_LEAK_DETECTION_THRESHOLD, 0);
+            prepareThreshold = getInt(properties, PREPARE_THRESHOLD, 1, 0);
+            statementCacheQueries = getInt(properties, STATEMENT_CACHE_QUERIES, 256, 0);
+            statementCacheSize = getInt(properties, STATEMENT_CACHE_SIZE, 5, 0);
+            interceptorTimeout = getInt(properties, OUTBOUND_INTERCEPTOR_TIMEOUT, 10, 1);
+            inboundTransformation = "inbound".equals(getOneOf(properties, TRANSFORMATION_MODE, "outbound", "inbound"));
+            topicPrefix = getString(properties, TOPIC_PREFIX, "fancy-cars");
+            topicRoutes = getTopicRoutes(properties);
+            controlTopic = getString(properties, CONTROL_TOPIC, "fancy-cars-control/generations").trim();
+            controlClientIds = getSet(properties, CONTROL_CLIENT_IDS, "");
+            payloadCacheMaxBytes = getLong(properties, PAYLOAD_CACHE_MAX_BYTES, 4 * 1024 * 1024);
+            payloadCacheMaxPayloadSize = getInt(properties, PAYLOAD_CACHE_MAX_PAYLOAD_SIZE, 256, 0);
+            conflationInterval = getLong(properties, CONFLATION_INTERVAL, 0);
+            conflationDelta = getDouble(properties, CONFLATION_DELTA, 0.0);
+            conflationRoutes = getSet(properties, CONFLATION_ROUTES, "temperature");
+            binaryEncodingRoutes = getSet(properties, BINARY_ENCODING_ROUTES, "");
+            generationSource = getOneOf(properties, GENERATION_SOURCE, "jdbc", "file", "mmap");
+            generationSourceFile = getString(properties, GENERATION_SOURCE_FILE, "generations.csv").trim();
+            snapshotFile = getString(properties, SNAPSHOT_FILE, "generations.snapshot").trim();
+            cacheMaxSize = getInt(properties, CACHE_MAX_SIZE, 100_000, 0);
+            cacheTtl = getLong(properties, CACHE_TTL, 300);
+            cacheNegativeTtl = getLong(properties, CACHE_NEGATIVE_TTL, 30);
+            cacheRefreshAfter = getLong(properties, CACHE_REFRESH_AFTER, 240);
+            lookupBatchSize = getInt(properties, LOOKUP_BATCH_SIZE, 64, 1);
+            lookupBatchDelay = getLong(properties, LOOKUP_BATCH_DELAY, 200);
+            preloadEnabled = "true".equals(getOneOf(properties, PRELOAD_ENABLED, "false", "true"));
+            preloadSyncInterval = getLong(properties, PRELOAD_SYNC_INTERVAL, 60);
+            preloadFullReloadInterval = getLong(properties, PRELOAD_FULL_RELOAD_INTERVAL, 3600);
+            asyncLookup = "async".equals(getOneOf(properties, LOOKUP_MODE, "async", "blocking"));
+            lookupExecutor = getOneOf(properties, LOOKUP_EXECUTOR, "pool", "virtual");
+            lookupThreads = getInt(properties, LOOKUP_THREADS, 16, 1);
+            lookupQueueSize = getInt(properties, LOOKUP_QUEUE_SIZE, 1000, 0);
+            circuitBreakerFailureThreshold = getInt(properties, CIRCUIT_BREAKER_FAILURE_THRESHOLD, 5, 0);
+            circuitBreakerSlowCall = getLong(properties, CIRCUIT_BREAKER_SLOW_CALL, 1000);
+            circuitBreakerOpenDuration = getLong(properties, CIRCUIT_BREAKER_OPEN_DURATION, 10);
+            concurrencyMinLimit = getInt(properties, CONCURRENCY_MIN_LIMIT, 2, 1);
+            concurrencyMaxLimit = getInt(properties, CONCURRENCY_MAX_LIMIT, poolSize, 0);
+            concurrencyLatencyTolerance = getDouble(properties, CONCURRENCY_LATENCY_TOLERANCE, 2.0);
+            concurrencyMaxWait = getLong(properties, CONCURRENCY_MAX_WAIT, 1000);
+            failurePolicy = getOneOf(properties, FAILURE_POLICY, "drop", "deliver");
+        }
+
+        private static String getString(final Map<Object, Object> properties, final String key,
+                                        final String defaultValue) {
+            final Object value = properties.get(key);
+            return value != null ? value.toString() : defaultValue;
+        }
+
+        private static int getInt(final Map<Object, Object> properties, final String key, final int defaultValue,
+                                  final int min) {
+            final Object value = properties.get(key);
+            if (value == null) {
+                return defaultValue;
+            }
+            try {
+                final int parsed = Integer.parseInt(value.toString().trim());
+                if (parsed >= min) {
+                    return parsed;
+                }
+            } catch (NumberFormatException e) {
+                // reported below
+            }
+            throw invalid(key, value, "an integer of at least " + min);
+        }
+
+        private static long getLong(final Map<Object, Object> properties, final String key, final long defaultValue) {
+            final Object value = properties.get(key);
+            if (value == null) {
+                return defaultValue;
+            }
+            try {
+                final long parsed = Long.parseLong(value.toString().trim());
+                if (parsed >= 0) {
+                    return parsed;
+                }
+            } catch (NumberFormatException e) {
+                // reported below
+            }
+            throw invalid(key, value, "a non-negative integer");
+        }
+
+        private static double getDouble(final Map<Object, Object> properties, final String key,
+                                        final double defaultValue) {
+            final Object value = properties.get(key);
+            if (value == null) {
+                return defaultValue;
+            }
+            try {
+                final double parsed = Double.parseDouble(value.toString().trim());
+                if (parsed >= 0 && Double.isFinite(parsed)) {
+                    return parsed;
+                }
+            } catch (NumberFormatException e) {
+                // reported below
+            }
+            throw invalid(key, value, "a non-negative number");
+        }
+
+        // the first allowed value is the default
+        private static String getOneOf(final Map<Object, Object> properties, final String key,
+                                       final String... allowed) {
+            final Object value = properties.get(key);
+            if (value == null) {
+                return allowed[0];
+            }
+            final var name = value.toString().trim().toLowerCase(Locale.ROOT);
+            if (Arrays.asList(allowed).contains(name)) {
+                return name;
+            }
+            throw invalid(key, value, "one of " + String.join(", ", allowed));
+        }
+
+        private static Set<String> getSet(final Map<Object, Object> properties, final String key,
+                                          final String defaultValue) {
+            final Set<String> result = new HashSet<>();
+            for (String element : getString(properties, key, defaultValue).split(",")) {
+                if (!element.isBlank()) {
+                    result.add(element.trim());
+                }
+            }
+            return Set.copyOf(result);
+        }
+
+        private static Map<String, String> getTopicRoutes(final Map<Object, Object> properties) {
+            final var routes = getString(properties, TOPIC_ROUTES, "temperature:device,command:backend");
+            final var topicRoutes = new LinkedHashMap<String, String>();
+            for (String route : routes.split(",")) {
+                final var parts = route.split(":");
+                if (parts.length != 2 || parts[0].isBlank() || parts[1].isBlank()) {
+                    throw invalid(TOPIC_ROUTES, routes, "comma separated <last topic level>:<transformer> pairs");
+                }
+                topicRoutes.put(parts[0].trim(), parts[1].trim());
+            }
+            return Collections.unmodifiableMap(topicRoutes);
+        }
+
+        private static IllegalArgumentException invalid(final String key, final Object value, final String expected) {
+            return new IllegalArgumentException("Value '" + value + "' of '" + key + "' is not " + expected + ".");
         }
     }
 }
@@ -0,0 +1,34 @@
+package org.extension.dao;
+
+import java.util.Locale;
+
+public enum CarGeneration {
+    OLD,
+    NEW,
+    UNKNOWN; // client id is not present in DB
+
+    private static final int OLD_GENERATION_VALUE = 1;
+
+    public static CarGeneration fromColumnValue(int gen) {
+        return gen == OLD_GENERATION_VALUE ? OLD : NEW;
+    }
+
+    /**
+     * @param name "old" or "new" in any case, or a DB column value
+     * @return generation, or null if the name is neither
+     */
+    public static CarGeneration fromName(String name) {
+        switch (name.toLowerCase(Locale.ROOT)) {
+            case "old":
+                return OLD;
+            case "new":
+                return NEW;
+            default:
+                try {
+                    return fromColumnValue(Integer.parseInt(name));
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+        }
+    }
+}
@@ -1,62 +1,385 @@
 package org.extension.dao;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.hivemq.extension.sdk.api.annotations.NotNull;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.pool.HikariPoolMBean;
 import org.extension.config.PropertiesHolder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.management.JMException;
+import javax.management.JMX;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 
-public class CarInfoDAO {
+public class CarInfoDAO implements GenerationSource {
 
     private static final @NotNull Logger log = LoggerFactory.getLogger(CarInfoDAO.class);
     private static final String SQL_STATEMENT = "SELECT gen FROM generation where clientid = ?";
+    private static final String SQL_BATCH_STATEMENT = "SELECT clientid, gen FROM generation where clientid = ANY(?)";
+    private static final String SQL_ALL_STATEMENT = "SELECT clientid, gen FROM generation";
+    private static final String SQL_UPDATED_STATEMENT = "SELECT clientid, gen, updated_at FROM generation where updated_at > ?";
+    private static final String SQL_NOW_STATEMENT = "SELECT now()";
+    private static final int FETCH_SIZE = 10_000;
     public static final String COLUMN_GEN = "gen";
+    public static final String COLUMN_CLIENT_ID = "clientid";
+    public static final String COLUMN_UPDATED_AT = "updated_at";
 
-    private HikariDataSource hikariDataSource;
+    private static final String POOL_NAME = "fancy-cars";
+    // Hikari registers the pool statistics under this name, but does not unregister them on shutdown
+    private static final String POOL_MBEAN_NAME = "com.zaxxer.hikari.pool:type=Pool (" + POOL_NAME + ")";
 
-    public void init(PropertiesHolder propertiesHolder) {
-        HikariConfig config = new HikariConfig();
+    private static final long MIN_START_RETRY_DELAY_MILLIS = 1_000;
+    private static final long MAX_START_RETRY_DELAY_MILLIS = 60_000;
+
+    // null until the pool started, published and shut down under the lock of this
+    private volatile HikariDataSource hikariDataSource;
+    private boolean shutDown;
+    private HikariConfig config;
+    private volatile long connectionTimeoutMillis;
+
+    private Timer lookupTimer = new Timer();
+    private Counter errorCounter = new Counter();
+    private Counter timeoutCounter = new Counter();
+
+    public void init(PropertiesHolder propertiesHolder, MetricRegistry metricRegistry) {
+        configure(propertiesHolder, metricRegistry);
+        startPool(metricRegistry);
+    }
+
+    // starts the pool on the given scheduler, so an unavailable DB does not hold up the caller
+    public void init(PropertiesHolder propertiesHolder, MetricRegistry metricRegistry,
+                     ScheduledExecutorService poolStarter) {
+        configure(propertiesHolder, metricRegistry);
+        poolStarter.execute(() -> startPool(metricRegistry, poolStarter, MIN_START_RETRY_DELAY_MILLIS));
+    }
+
+    private void configure(PropertiesHolder propertiesHolder, MetricRegistry metricRegistry) {
+        config = new HikariConfig();
         config.setJdbcUrl(propertiesHolder.getUrl());
         config.setDriverClassName(propertiesHolder.getDriver());
         config.setUsername(propertiesHolder.getUser());
         config.setPassword(propertiesHolder.getPassword());
         config.setMaximumPoolSize(propertiesHolder.getPoolSize());
-        hikariDataSource = new HikariDataSource(config);
+        config.setMinimumIdle(propertiesHolder.getPoolMinIdle());
+        config.setConnectionTimeout(propertiesHolder.getPoolConnectionTimeout());
+        config.setLeakDetectionThreshold(propertiesHolder.getPoolLeakDetectionThreshold());
+        if (!propertiesHolder.getPoolConnectionTestQuery().isEmpty()) {
+            config.setJdbc4ConnectionTest(false);
+            config.setConnectionTestQuery(propertiesHolder.getPoolConnectionTestQuery());
+        }
+        // the Postgres driver caches prepared statements per connection by their SQL and reads these with
+        // Properties.getProperty, so they must be strings
+        config.addDataSourceProperty("prepareThreshold", String.valueOf(propertiesHolder.getPrepareThreshold()));
+        config.addDataSourceProperty("preparedStatementCacheQueries",
+                String.valueOf(propertiesHolder.getStatementCacheQueries()));
+        config.addDataSourceProperty("preparedStatementCacheSizeMiB",
+                String.valueOf(propertiesHolder.getStatementCacheSize()));
+        config.setPoolName(POOL_NAME);
+        config.setRegisterMbeans(true);
+        connectionTimeoutMillis = propertiesHolder.getPoolConnectionTimeout();
+
+        lookupTimer = metricRegistry.timer(MetricRegistry.name(CarInfoDAO.class, "lookups"));
+        errorCounter = metricRegistry.counter(MetricRegistry.name(CarInfoDAO.class, "errors"));
+        timeoutCounter = metricRegistry.counter(MetricRegistry.name(CarInfoDAO.class, "timeouts"));
+    }
+
+    private void startPool(final MetricRegistry metricRegistry, final ScheduledExecutorService poolStarter,
+                           final long retryDelayMillis) {
+        if (startPool(metricRegistry)) {
+            return;
+        }
+        log.info("Retrying to start connection pool in {} ms.", retryDelayMillis);
+        final long nextRetryDelayMillis = Math.min(retryDelayMillis * 2, MAX_START_RETRY_DELAY_MILLIS);
+        try {
+            poolStarter.schedule(() -> startPool(metricRegistry, poolStarter, nextRetryDelayMillis),
+                    retryDelayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            log.debug("Not retrying to start connection pool, the extension stops.");
+        }
     }
 
+    // false if the pool could not be started and should be started again
+    private boolean startPool(final MetricRegistry metricRegistry) {
+        if (isShutDown()) {
+            return true;
+        }
+        final long start = System.nanoTime();
+        final HikariDataSource started;
+        try {
+            started = new HikariDataSource(config);
+        } catch (RuntimeException e) {
+            log.error("Exception during starting connection pool.", e);
+            unregisterPoolMBean();
+            return false;
+        }
+        synchronized (this) {
+            if (!shutDown) {
+                hikariDataSource = started;
+                log.info("Started connection pool in {} ms.", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                registerPoolMetrics(metricRegistry);
+                return true;
+            }
+        }
+        // shut down while starting
+        started.close();
+        unregisterPoolMBean();
+        return true;
+    }
+
+    // Hikari checks the pool size whenever it adds a connection, surplus connections are closed once idle
+    @Override
+    public void reconfigure(PropertiesHolder propertiesHolder) {
+        // a pool which is still starting takes over the settings of the configuration it was created with
+        final var started = hikariDataSource;
+        final HikariConfig pool = started != null ? started : config;
+        if (pool == null) {
+            return;
+        }
+        final int poolSize = propertiesHolder.getPoolSize();
+        if (poolSize != pool.getMaximumPoolSize()) {
+            log.info("Resizing connection pool from {} to {} connections.", pool.getMaximumPoolSize(), poolSize);
+            pool.setMaximumPoolSize(poolSize);
+        }
+        pool.setMinimumIdle(Math.min(propertiesHolder.getPoolMinIdle(), poolSize));
+        pool.setConnectionTimeout(propertiesHolder.getPoolConnectionTimeout());
+        connectionTimeoutMillis = propertiesHolder.getPoolConnectionTimeout();
+    }
+
+    @Override
     public void shutDown() {
-        if (hikariDataSource != null) {
-            hikariDataSource.close();
+        // a pool which is still starting is closed once it started
+        final HikariDataSource started;
+        synchronized (this) {
+            shutDown = true;
+            started = hikariDataSource;
+        }
+        if (started != null) {
+            started.close();
+            unregisterPoolMBean();
         }
     }
 
+    public boolean isPoolStarted() {
+        return hikariDataSource != null;
+    }
+
+    private synchronized boolean isShutDown() {
+        return shutDown;
+    }
+
     /**
-     * Method to look up in DB if the clientID belongs to old or new generation Car.
-     * @param clientId value in DB column "clientid" to look for
-     * @return
-     * -- true if the given client id belongs to old generation car
-     * -- false if the given client id belongs to new generation car
-     * -- null if the given client id was not found in DB or connection failed
+     * Method to look up in DB the generation of the Car.
+     * @return {@link CarGeneration#UNKNOWN} if the given client id was not found in DB
+     * @throws SQLException if connection to DB or query execution failed
      */
-    public Boolean isOldGenerationCar(final String clientId) {
+    @Override
+    public CarGeneration findGeneration(final String clientId) throws SQLException {
+        return timed(() -> queryGeneration(clientId));
+    }
+
+    private CarGeneration queryGeneration(final String clientId) throws SQLException {
         log.debug("Executing DB query to find if the client is of the old type.");
-        try (var connection = hikariDataSource.getConnection();
+        try (var connection = getConnection();
              final var preparedStatement = connection.prepareStatement(SQL_STATEMENT)) {
             preparedStatement.setString(1, clientId);
 
             try (var resultSet = preparedStatement.executeQuery()) {
                 if (resultSet.next()) {
-                    return resultSet.getInt(COLUMN_GEN) == 1;
+                    return CarGeneration.fromColumnValue(resultSet.getInt(COLUMN_GEN));
                 }
-            } catch (SQLException e) {
-                log.error("Exception during executing query.", e);
             }
+        }
+        return CarGeneration.UNKNOWN;
+    }
+
+    @Override
+    public Map<String, CarGeneration> findGenerations(final Collection<String> clientIds) throws SQLException {
+        return timed(() -> queryGenerations(clientIds));
+    }
+
+    private Map<String, CarGeneration> queryGenerations(final Collection<String> clientIds) throws SQLException {
+        log.debug("Executing DB query to find generations of {} clients.", clientIds.size());
+        final Map<String, CarGeneration> generations = new HashMap<>();
+        try (var connection = getConnection();
+             final var preparedStatement = connection.prepareStatement(SQL_BATCH_STATEMENT)) {
+            preparedStatement.setArray(1, connection.createArrayOf("varchar", clientIds.toArray()));
+
+            try (var resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    generations.put(resultSet.getString(COLUMN_CLIENT_ID),
+                            CarGeneration.fromColumnValue(resultSet.getInt(COLUMN_GEN)));
+                }
+            }
+        }
+        for (String clientId : clientIds) {
+            generations.putIfAbsent(clientId, CarGeneration.UNKNOWN);
+        }
+        return generations;
+    }
+
+    // returns the DB time at which the load started, findGenerationsUpdatedSince polls from there
+    @Override
+    public Timestamp loadAllGenerations(final BiConsumer<String, CarGeneration> consumer) throws SQLException {
+        return countingErrors(() -> queryAllGenerations(consumer));
+    }
+
+    private Timestamp queryAllGenerations(final BiConsumer<String, CarGeneration> consumer) throws SQLException {
+        log.debug("Executing DB query to load all generations.");
+        try (var connection = getConnection()) {
+            final Timestamp startedAt;
+            try (var statement = connection.prepareStatement(SQL_NOW_STATEMENT);
+                 var resultSet = statement.executeQuery()) {
+                resultSet.next();
+                startedAt = resultSet.getTimestamp(1);
+            }
+
+            // Postgres only streams results with a fetch size inside of a transaction
+            connection.setAutoCommit(false);
+            try (var preparedStatement = connection.prepareStatement(SQL_ALL_STATEMENT)) {
+                preparedStatement.setFetchSize(FETCH_SIZE);
+                try (var resultSet = preparedStatement.executeQuery()) {
+                    while (resultSet.next()) {
+                        consumer.accept(resultSet.getString(COLUMN_CLIENT_ID),
+                                CarGeneration.fromColumnValue(resultSet.getInt(COLUMN_GEN)));
+                    }
+                }
+            } finally {
+                connection.commit();
+                connection.setAutoCommit(true);
+            }
+            return startedAt;
+        }
+    }
+
+    // requires "updated_at" to be maintained on every insert and update
+    @Override
+    public Timestamp findGenerationsUpdatedSince(final Timestamp since,
+                                                 final BiConsumer<String, CarGeneration> consumer) throws SQLException {
+        return countingErrors(() -> queryGenerationsUpdatedSince(since, consumer));
+    }
+
+    private Timestamp queryGenerationsUpdatedSince(final Timestamp since,
+                                                   final BiConsumer<String, CarGeneration> consumer) throws SQLException {
+        log.debug("Executing DB query to find generations updated since {}.", since);
+        Timestamp latest = since;
+        try (var connection = getConnection();
+             final var preparedStatement = connection.prepareStatement(SQL_UPDATED_STATEMENT)) {
+            preparedStatement.setTimestamp(1, since);
+
+            try (var resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    consumer.accept(resultSet.getString(COLUMN_CLIENT_ID),
+                            CarGeneration.fromColumnValue(resultSet.getInt(COLUMN_GEN)));
+                    var updatedAt = resultSet.getTimestamp(COLUMN_UPDATED_AT);
+                    if (updatedAt.after(latest)) {
+                        latest = updatedAt;
+                    }
+                }
+            }
+        }
+        return latest;
+    }
+
+    private Connection getConnection() throws SQLException {
+        final var pool = hikariDataSource;
+        if (pool == null) {
+            // failing right away lets restored generations answer, waiting could outlast the interceptor timeout
+            throw new SQLTransientConnectionException("Connection pool is not started yet.");
+        }
+        final long start = System.nanoTime();
+        try {
+            return pool.getConnection();
+        } catch (SQLTransientConnectionException e) {
+            throw e;
+        } catch (SQLException e) {
+            // Hikari 1.3 reports a connection which did not become available in time as plain SQLException
+            if (System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(connectionTimeoutMillis)) {
+                throw new SQLTransientConnectionException(e.getMessage(), e);
+            }
+            throw e;
+        }
+    }
+
+    private <T> T timed(final Query<T> query) throws SQLException {
+        try (var ignored = lookupTimer.time()) {
+            return countingErrors(query);
+        }
+    }
+
+    private <T> T countingErrors(final Query<T> query) throws SQLException {
+        try {
+            return query.execute();
         } catch (SQLException e) {
-            log.error("Exception during connection to DB.", e);
+            errorCounter.inc();
+            if (isTimeout(e)) {
+                timeoutCounter.inc();
+            }
+            throw e;
         }
-        return null;
+    }
+
+    private static boolean isTimeout(final SQLException e) {
+        return e instanceof SQLTimeoutException || e instanceof SQLTransientConnectionException;
+    }
+
+    private void registerPoolMetrics(final MetricRegistry metricRegistry) {
+        final var mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName poolName = poolMBeanName();
+        if (!mBeanServer.isRegistered(poolName)) {
+            log.warn("Connection pool statistics are not available, pool metrics are not registered.");
+            return;
+        }
+        final var pool = JMX.newMBeanProxy(mBeanServer, poolName, HikariPoolMBean.class);
+        metricRegistry.register(MetricRegistry.name(CarInfoDAO.class, "pool", "active"),
+                (Gauge<Integer>) pool::getActiveConnections);
+        metricRegistry.register(MetricRegistry.name(CarInfoDAO.class, "pool", "idle"),
+                (Gauge<Integer>) pool::getIdleConnections);
+        metricRegistry.register(MetricRegistry.name(CarInfoDAO.class, "pool", "total"),
+                (Gauge<Integer>) pool::getTotalConnections);
+        metricRegistry.register(MetricRegistry.name(CarInfoDAO.class, "pool", "pending"),
+                (Gauge<Integer>) pool::getThreadsAwaitingConnection);
+    }
+
+    private static void unregisterPoolMBean() {
+        final var mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (mBeanServer.isRegistered(poolMBeanName())) {
+                mBeanServer.unregisterMBean(poolMBeanName());
+            }
+        } catch (JMException e) {
+            log.warn("Not able to unregister connection pool MBean.", e);
+        }
+    }
+
+    private static ObjectName poolMBeanName() {
+        try {
+            return new ObjectName(POOL_MBEAN_NAME);
+        } catch (MalformedObjectNameException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Query<T> {
+        T execute() throws SQLException;
     }
 }
@@ -0,0 +1,89 @@
+package org.extension.dao;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import org.extension.config.PropertiesHolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Stops sending queries to a failing or stalled DB. After the open duration a single probe query is let through.
+ */
+public class CircuitBreaker {
+    private static final @NotNull Logger log = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final LongSupplier nanoTicker;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+
+    private final LongAdder rejected = new LongAdder();
+
+    public CircuitBreaker(PropertiesHolder propertiesHolder) {
+        this(propertiesHolder, System::nanoTime);
+    }
+
+    CircuitBreaker(PropertiesHolder propertiesHolder, LongSupplier nanoTicker) {
+        this.failureThreshold = propertiesHolder.getCircuitBreakerFailureThreshold();
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(propertiesHolder.getCircuitBreakerSlowCall());
+        this.openNanos = TimeUnit.SECONDS.toNanos(propertiesHolder.getCircuitBreakerOpenDuration());
+        this.nanoTicker = nanoTicker;
+    }
+
+    // the outcome has to be reported with onSuccess or onFailure
+    public synchronized boolean tryAcquire() {
+        if (state == State.CLOSED || failureThreshold <= 0) {
+            return true;
+        }
+        if (state == State.OPEN && nanoTicker.getAsLong() - openedAt >= openNanos) {
+            log.info("Probing DB after circuit breaker was open.");
+            state = State.HALF_OPEN;
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    // slow queries count as failures
+    public synchronized void onSuccess(final long durationNanos) {
+        if (durationNanos >= slowCallNanos) {
+            onFailure();
+            return;
+        }
+        consecutiveFailures = 0;
+        if (state == State.HALF_OPEN) {
+            log.info("DB recovered, closing circuit breaker.");
+            state = State.CLOSED;
+        }
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (failureThreshold > 0 && (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold)) {
+            if (state == State.CLOSED) {
+                log.warn("Opening circuit breaker after {} failed or slow DB queries.", consecutiveFailures);
+            }
+            state = State.OPEN;
+            openedAt = nanoTicker.getAsLong();
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+}
@@ -0,0 +1,13 @@
+package org.extension.dao;
+
+import java.sql.SQLTransientConnectionException;
+
+/**
+ * Reported instead of a DB error for lookups which were not sent to DB, because the {@link CircuitBreaker} is open.
+ */
+public class CircuitBreakerOpenException extends SQLTransientConnectionException {
+
+    public CircuitBreakerOpenException() {
+        super("Circuit breaker is open, DB is not queried.");
+    }
+}
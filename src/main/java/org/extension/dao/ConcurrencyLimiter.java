@@ -0,0 +1,145 @@
+package org.extension.dao;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import org.extension.config.PropertiesHolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Adapts the number of concurrent DB queries to the observed latency (additive increase, multiplicative decrease).
+ * The limit starts at the lower bound, so a reconnect storm after a restart does not hit DB with all connections.
+ * The no-load latency is the lowest one of the current and the previous window, so it follows a DB which got
+ * slower for good.
+ */
+public class ConcurrencyLimiter {
+    private static final @NotNull Logger log = LoggerFactory.getLogger(ConcurrencyLimiter.class);
+
+    private static final double BACKOFF_RATIO = 0.9;
+    private static final int WINDOW_SIZE = 100;
+    // keeps the jitter of very fast queries from lowering the limit
+    private static final long MIN_LATENCY_INCREASE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private int minLimit;
+    private int maxLimit;
+    private double latencyTolerance;
+    private long maxWaitNanos;
+
+    private double limit;
+    private int inFlight;
+    private long baselineNanos = Long.MAX_VALUE;
+    private long windowMinNanos = Long.MAX_VALUE;
+    private int windowSamples;
+
+    private final LongAdder shed = new LongAdder();
+
+    public ConcurrencyLimiter(PropertiesHolder propertiesHolder) {
+        // the limit starts at the lower bound
+        reconfigure(propertiesHolder);
+    }
+
+    public synchronized void reconfigure(final PropertiesHolder propertiesHolder) {
+        this.maxLimit = propertiesHolder.getConcurrencyMaxLimit();
+        this.minLimit = Math.max(1, Math.min(propertiesHolder.getConcurrencyMinLimit(), Math.max(1, maxLimit)));
+        this.latencyTolerance = propertiesHolder.getConcurrencyLatencyTolerance();
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(propertiesHolder.getConcurrencyMaxWait());
+        this.limit = Math.max(minLimit, Math.min(limit, maxLimit));
+        notifyAll();
+    }
+
+    // the outcome has to be reported with onSuccess, onFailure or release
+    public synchronized void acquire() {
+        if (maxLimit <= 0) {
+            inFlight++;
+            return;
+        }
+        final long deadline = System.nanoTime() + maxWaitNanos;
+        // disabling the limit on reconfiguration lets waiting queries pass
+        while (maxLimit > 0 && inFlight >= (int) limit) {
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                shed();
+            }
+            try {
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                shed();
+            }
+        }
+        inFlight++;
+    }
+
+    // for threads which must not wait, sheds the query once the max wait since its first attempt passed
+    public synchronized boolean tryAcquire(final long firstAttemptNanos) {
+        if (maxLimit <= 0 || inFlight < (int) limit) {
+            inFlight++;
+            return true;
+        }
+        if (System.nanoTime() - firstAttemptNanos >= maxWaitNanos) {
+            shed();
+        }
+        return false;
+    }
+
+    public synchronized void onSuccess(final long latencyNanos) {
+        // only a limit which was actually used may grow
+        final boolean limited = inFlight * 2 >= limit;
+        inFlight--;
+
+        windowMinNanos = Math.min(windowMinNanos, latencyNanos);
+        final long noLoadNanos = Math.min(baselineNanos, windowMinNanos);
+        if (++windowSamples >= WINDOW_SIZE) {
+            baselineNanos = windowMinNanos;
+            windowMinNanos = Long.MAX_VALUE;
+            windowSamples = 0;
+        }
+
+        if (latencyNanos > Math.max(noLoadNanos * latencyTolerance, noLoadNanos + MIN_LATENCY_INCREASE_NANOS)) {
+            decrease();
+        } else if (limited && limit < maxLimit) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+        notifyAll();
+    }
+
+    public synchronized void onFailure() {
+        inFlight--;
+        decrease();
+        notifyAll();
+    }
+
+    // gives the permit back without adapting the limit, e.g. if the query was not sent at all
+    public synchronized void release() {
+        inFlight--;
+        notifyAll();
+    }
+
+    public synchronized int getLimit() {
+        return maxLimit <= 0 ? 0 : (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public long getShedCount() {
+        return shed.sum();
+    }
+
+    private void decrease() {
+        final double decreased = Math.max(minLimit, limit * BACKOFF_RATIO);
+        if ((int) decreased < (int) limit) {
+            log.debug("Lowering concurrency limit of DB queries to {}.", (int) decreased);
+        }
+        limit = decreased;
+    }
+
+    private void shed() {
+        shed.increment();
+        throw new RejectedExecutionException("Too many generation lookups are waiting for DB.");
+    }
+}
@@ -0,0 +1,105 @@
+package org.extension.dao;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.Properties;
+import java.util.function.BiConsumer;
+
+/**
+ * Generations from a fleet list shipped with the broker, loaded once into a compact {@link GenerationTable}.
+ * <p>
+ * Files ending with ".properties" contain "clientid=generation" entries, all others "clientid,generation" lines
+ * with an optional header. Generations are given like in the DB column (1 is old, everything else new)
+ * or as "old" and "new".
+ */
+public class FileGenerationSource implements GenerationSource {
+    private static final @NotNull Logger log = LoggerFactory.getLogger(FileGenerationSource.class);
+
+    private static final String PROPERTIES_SUFFIX = ".properties";
+    private static final char CSV_SEPARATOR = ',';
+    private static final String COMMENT = "#";
+
+    private final GenerationTable table;
+    private final Timestamp loadedAt;
+
+    public FileGenerationSource(final Path file) throws IOException {
+        this.loadedAt = new Timestamp(Files.getLastModifiedTime(file).toMillis());
+        final var builder = new GenerationTable.Builder();
+        read(file, builder::put);
+        this.table = builder.build();
+        log.info("Loaded generations of {} cars from '{}'.", table.size(), file);
+    }
+
+    @Override
+    public CarGeneration findGeneration(final String clientId) {
+        return table.get(clientId);
+    }
+
+    @Override
+    public Timestamp loadAllGenerations(final BiConsumer<String, CarGeneration> consumer) {
+        table.forEach(consumer);
+        return loadedAt;
+    }
+
+    @Override
+    public boolean isLocal() {
+        return true;
+    }
+
+    @Override
+    public void shutDown() {
+    }
+
+    // without keeping the file in memory
+    public static void read(final Path file, final BiConsumer<String, CarGeneration> consumer) throws IOException {
+        if (file.getFileName().toString().endsWith(PROPERTIES_SUFFIX)) {
+            final var properties = new Properties();
+            try (var reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+            properties.forEach((clientId, generation) -> accept(clientId.toString(), generation.toString(), consumer));
+            return;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                final var trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith(COMMENT)) {
+                    continue;
+                }
+                final int separator = trimmed.lastIndexOf(CSV_SEPARATOR);
+                if (separator <= 0) {
+                    log.warn("Ignoring line {} of '{}' without client id and generation.", lineNumber, file);
+                    continue;
+                }
+                final var clientId = trimmed.substring(0, separator).trim();
+                final var generation = trimmed.substring(separator + 1).trim();
+                if (lineNumber == 1 && CarInfoDAO.COLUMN_CLIENT_ID.equalsIgnoreCase(clientId)) {
+                    continue;
+                }
+                accept(clientId, generation, consumer);
+            }
+        }
+    }
+
+    private static void accept(final String clientId, final String generation,
+                               final BiConsumer<String, CarGeneration> consumer) {
+        final var parsed = CarGeneration.fromName(generation);
+        if (parsed == null) {
+            log.warn("Ignoring unknown generation '{}' of clientID {}.", generation, clientId);
+        } else {
+            consumer.accept(clientId, parsed);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package org.extension.dao;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Pushes client ids with their generation into the given consumer, e.g. to fill an index or write a generation file.
+ */
+@FunctionalInterface
+public interface GenerationLoader<E extends Exception> {
+    void load(BiConsumer<String, CarGeneration> consumer) throws E;
+}
@@ -0,0 +1,230 @@
+package org.extension.dao;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import org.extension.config.PropertiesHolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects generation lookups for up to batch size client ids or batch delay and resolves them with a single query.
+ * With a query executor, its threads must not await the futures. The scheduler never waits for the limiter, so
+ * other partial batches are still flushed.
+ */
+public class GenerationLookupBatcher {
+    private static final @NotNull Logger log = LoggerFactory.getLogger(GenerationLookupBatcher.class);
+
+    // a permit is usually given back within one query
+    private static final long LIMITER_RETRY_MICROS = 1000;
+
+    private final GenerationSource generationSource;
+    private final CircuitBreaker circuitBreaker;
+    private final ConcurrencyLimiter concurrencyLimiter;
+    private final ScheduledExecutorService scheduler;
+    private final Executor queryExecutor;
+    private final int maxBatchSize;
+    private final long maxDelayMicros;
+
+    private final Object lock = new Object();
+    private List<PendingLookup> pending = new ArrayList<>();
+    private ScheduledFuture<?> scheduledFlush;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder lookups = new LongAdder();
+
+    public GenerationLookupBatcher(GenerationSource generationSource, CircuitBreaker circuitBreaker,
+                                   PropertiesHolder propertiesHolder, ScheduledExecutorService scheduler) {
+        this(generationSource, circuitBreaker, propertiesHolder, scheduler, null);
+    }
+
+    public GenerationLookupBatcher(GenerationSource generationSource, CircuitBreaker circuitBreaker,
+                                   PropertiesHolder propertiesHolder, ScheduledExecutorService scheduler,
+                                   Executor queryExecutor) {
+        this(generationSource, circuitBreaker, new ConcurrencyLimiter(propertiesHolder), propertiesHolder, scheduler,
+                queryExecutor);
+    }
+
+    public GenerationLookupBatcher(GenerationSource generationSource, CircuitBreaker circuitBreaker,
+                                   ConcurrencyLimiter concurrencyLimiter, PropertiesHolder propertiesHolder,
+                                   ScheduledExecutorService scheduler, Executor queryExecutor) {
+        this.generationSource = generationSource;
+        this.circuitBreaker = circuitBreaker;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.scheduler = scheduler;
+        this.queryExecutor = queryExecutor;
+        this.maxBatchSize = propertiesHolder.getLookupBatchSize();
+        this.maxDelayMicros = propertiesHolder.getLookupBatchDelay();
+    }
+
+    // fails with SQLException, CircuitBreakerOpenException if DB was not queried, or RejectedExecutionException if shed
+    public CompletableFuture<CarGeneration> submit(final String clientId) {
+        final var lookup = new PendingLookup(clientId);
+
+        if (maxBatchSize <= 1) {
+            dispatch(List.of(lookup));
+            return lookup.future;
+        }
+
+        List<PendingLookup> fullBatch = null;
+        synchronized (lock) {
+            pending.add(lookup);
+            if (pending.size() >= maxBatchSize) {
+                fullBatch = takePending();
+            } else if (scheduledFlush == null) {
+                scheduledFlush = scheduleFlush();
+                if (scheduledFlush == null) {
+                    fullBatch = takePending();
+                }
+            }
+        }
+
+        if (fullBatch != null) {
+            dispatch(fullBatch);
+        }
+        return lookup.future;
+    }
+
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    public long getLookupCount() {
+        return lookups.sum();
+    }
+
+    private ScheduledFuture<?> scheduleFlush() {
+        try {
+            return scheduler.schedule(this::flush, maxDelayMicros, TimeUnit.MICROSECONDS);
+        } catch (RejectedExecutionException e) {
+            log.warn("Flush of lookup batch rejected by executor, executing it right away.");
+            return null;
+        }
+    }
+
+    private void flush() {
+        final List<PendingLookup> batch;
+        synchronized (lock) {
+            batch = takePending();
+        }
+        if (queryExecutor == null) {
+            executeOnScheduler(batch, System.nanoTime());
+        } else {
+            dispatch(batch);
+        }
+    }
+
+    private void dispatch(final List<PendingLookup> batch) {
+        if (queryExecutor == null || batch.isEmpty()) {
+            execute(batch);
+            return;
+        }
+        try {
+            queryExecutor.execute(() -> execute(batch));
+        } catch (RejectedExecutionException e) {
+            batch.forEach(lookup -> lookup.future.completeExceptionally(e));
+        }
+    }
+
+    private List<PendingLookup> takePending() {
+        final var batch = pending;
+        pending = new ArrayList<>();
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        return batch;
+    }
+
+    private void execute(final List<PendingLookup> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            concurrencyLimiter.acquire();
+        } catch (RejectedExecutionException e) {
+            batch.forEach(lookup -> lookup.future.completeExceptionally(e));
+            return;
+        }
+        query(batch);
+    }
+
+    private void executeOnScheduler(final List<PendingLookup> batch, final long firstAttemptNanos) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            if (concurrencyLimiter.tryAcquire(firstAttemptNanos)) {
+                query(batch);
+                return;
+            }
+            scheduler.schedule(() -> executeOnScheduler(batch, firstAttemptNanos),
+                    LIMITER_RETRY_MICROS, TimeUnit.MICROSECONDS);
+        } catch (RejectedExecutionException e) {
+            batch.forEach(lookup -> lookup.future.completeExceptionally(e));
+        }
+    }
+
+    // holding a permit of the limiter
+    private void query(final List<PendingLookup> batch) {
+        if (!circuitBreaker.tryAcquire()) {
+            concurrencyLimiter.release();
+            final var rejected = new CircuitBreakerOpenException();
+            batch.forEach(lookup -> lookup.future.completeExceptionally(rejected));
+            return;
+        }
+        batches.increment();
+        lookups.add(batch.size());
+
+        final long start = System.nanoTime();
+        try {
+            if (batch.size() == 1) {
+                final var lookup = batch.get(0);
+                final var generation = generationSource.findGeneration(lookup.clientId);
+                onSuccess(System.nanoTime() - start);
+                lookup.future.complete(generation);
+                return;
+            }
+
+            final Map<String, List<PendingLookup>> byClientId = new HashMap<>();
+            for (PendingLookup lookup : batch) {
+                byClientId.computeIfAbsent(lookup.clientId, id -> new ArrayList<>(1)).add(lookup);
+            }
+            final var generations = generationSource.findGenerations(byClientId.keySet());
+            onSuccess(System.nanoTime() - start);
+            byClientId.forEach((clientId, sameClientLookups) -> {
+                final var generation = generations.getOrDefault(clientId, CarGeneration.UNKNOWN);
+                sameClientLookups.forEach(lookup -> lookup.future.complete(generation));
+            });
+        } catch (SQLException | RuntimeException e) {
+            circuitBreaker.onFailure();
+            concurrencyLimiter.onFailure();
+            batch.forEach(lookup -> lookup.future.completeExceptionally(e));
+        }
+    }
+
+    private void onSuccess(final long durationNanos) {
+        circuitBreaker.onSuccess(durationNanos);
+        concurrencyLimiter.onSuccess(durationNanos);
+    }
+
+    private static class PendingLookup {
+        private final String clientId;
+        private final CompletableFuture<CarGeneration> future = new CompletableFuture<>();
+
+        private PendingLookup(String clientId) {
+            this.clientId = clientId;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package org.extension.dao;
+
+import org.extension.config.PropertiesHolder;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Where the generations of the cars come from. All sources report errors as {@link SQLException}.
+ */
+public interface GenerationSource {
+
+    CarGeneration findGeneration(String clientId) throws SQLException;
+
+    default Map<String, CarGeneration> findGenerations(final Collection<String> clientIds) throws SQLException {
+        final Map<String, CarGeneration> generations = new HashMap<>();
+        for (String clientId : clientIds) {
+            generations.put(clientId, findGeneration(clientId));
+        }
+        return generations;
+    }
+
+    // returns the time at which the load started, findGenerationsUpdatedSince polls from there
+    Timestamp loadAllGenerations(BiConsumer<String, CarGeneration> consumer) throws SQLException;
+
+    default Timestamp findGenerationsUpdatedSince(final Timestamp since,
+                                                  final BiConsumer<String, CarGeneration> consumer) throws SQLException {
+        return since;
+    }
+
+    // local lookups are cheap enough for broker threads and need neither caching nor batching
+    default boolean isLocal() {
+        return false;
+    }
+
+    default void reconfigure(final PropertiesHolder propertiesHolder) {
+    }
+
+    void shutDown();
+}
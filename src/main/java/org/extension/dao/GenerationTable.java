@@ -0,0 +1,82 @@
+package org.extension.dao;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Immutable open addressing table of client ids with one byte per generation, which is far more compact than
+ * a hash map with an entry object per car. Lookups never take a lock.
+ */
+public class GenerationTable {
+    private static final byte OLD = 1;
+    private static final byte NEW = 2;
+
+    private final String[] clientIds;
+    private final byte[] generations;
+    private final int mask;
+    private final int size;
+
+    private GenerationTable(final Map<String, CarGeneration> source) {
+        // keep the load factor at or below 0.5 so probe sequences stay short
+        final int capacity = Integer.highestOneBit(Math.max(1, source.size()) * 2 - 1) << 1;
+        this.clientIds = new String[capacity];
+        this.generations = new byte[capacity];
+        this.mask = capacity - 1;
+        this.size = source.size();
+        source.forEach((clientId, generation) -> {
+            int slot = slot(clientId);
+            while (clientIds[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            clientIds[slot] = clientId;
+            generations[slot] = generation == CarGeneration.OLD ? OLD : NEW;
+        });
+    }
+
+    public CarGeneration get(final String clientId) {
+        int slot = slot(clientId);
+        String candidate;
+        while ((candidate = clientIds[slot]) != null) {
+            if (candidate.equals(clientId)) {
+                return generations[slot] == OLD ? CarGeneration.OLD : CarGeneration.NEW;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return CarGeneration.UNKNOWN;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void forEach(final BiConsumer<String, CarGeneration> consumer) {
+        for (int slot = 0; slot < clientIds.length; slot++) {
+            if (clientIds[slot] != null) {
+                consumer.accept(clientIds[slot], generations[slot] == OLD ? CarGeneration.OLD : CarGeneration.NEW);
+            }
+        }
+    }
+
+    private int slot(final String clientId) {
+        final int hash = clientId.hashCode();
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    // UNKNOWN removes a client id again
+    public static class Builder {
+        private final Map<String, CarGeneration> generations = new HashMap<>();
+
+        public void put(final String clientId, final CarGeneration generation) {
+            if (generation == CarGeneration.UNKNOWN) {
+                generations.remove(clientId);
+            } else {
+                generations.put(clientId, generation);
+            }
+        }
+
+        public GenerationTable build() {
+            return new GenerationTable(generations);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package org.extension.dao;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import org.extension.config.PropertiesHolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs blocking generation lookups apart from the executor the broker shares with all extensions,
+ * so a slow DB can not starve unrelated work.
+ */
+public class LookupExecutor implements Executor {
+    private static final @NotNull Logger log = LoggerFactory.getLogger(LookupExecutor.class);
+
+    public static final String POOL = "pool";
+    public static final String VIRTUAL = "virtual";
+
+    private static final int SCHEDULER_THREADS = 2;
+
+    private final ExecutorService executorService;
+    private final ScheduledExecutorService scheduler;
+    // only used for virtual threads, the thread pool is bounded by its queue
+    private final Semaphore virtualThreadPermits;
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+
+    public LookupExecutor(PropertiesHolder propertiesHolder) {
+        final int queueSize = propertiesHolder.getLookupQueueSize();
+        final ExecutorService virtualThreadExecutor =
+                VIRTUAL.equals(propertiesHolder.getLookupExecutor()) ? newVirtualThreadExecutor() : null;
+
+        if (virtualThreadExecutor != null) {
+            executorService = virtualThreadExecutor;
+            virtualThreadPermits = new Semaphore(queueSize);
+            log.info("Running generation lookups on virtual threads.");
+        } else {
+            final int threads = propertiesHolder.getLookupThreads();
+            executorService = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(Math.max(1, queueSize)), new NamedThreadFactory("fancy-cars-lookup"));
+            ((ThreadPoolExecutor) executorService).allowCoreThreadTimeOut(true);
+            virtualThreadPermits = null;
+            log.info("Running generation lookups on {} threads.", threads);
+        }
+
+        final var scheduledExecutor = new ScheduledThreadPoolExecutor(SCHEDULER_THREADS,
+                new NamedThreadFactory("fancy-cars-lookup-scheduler"));
+        scheduledExecutor.setRemoveOnCancelPolicy(true);
+        scheduler = scheduledExecutor;
+    }
+
+    @Override
+    public void execute(final @NotNull Runnable lookup) {
+        if (virtualThreadPermits != null && !virtualThreadPermits.tryAcquire()) {
+            reject();
+        }
+        waiting.incrementAndGet();
+        try {
+            executorService.execute(() -> {
+                waiting.decrementAndGet();
+                active.incrementAndGet();
+                try {
+                    lookup.run();
+                } finally {
+                    active.decrementAndGet();
+                    if (virtualThreadPermits != null) {
+                        virtualThreadPermits.release();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            waiting.decrementAndGet();
+            if (virtualThreadPermits != null) {
+                virtualThreadPermits.release();
+            }
+            reject();
+        }
+    }
+
+    // the queue size and the kind of threads need a restart
+    public void reconfigure(PropertiesHolder propertiesHolder) {
+        if (!(executorService instanceof ThreadPoolExecutor)) {
+            return;
+        }
+        final var threadPool = (ThreadPoolExecutor) executorService;
+        final int threads = propertiesHolder.getLookupThreads();
+        // the core size must never exceed the maximum size, not even in between
+        if (threads > threadPool.getMaximumPoolSize()) {
+            threadPool.setMaximumPoolSize(threads);
+            threadPool.setCorePoolSize(threads);
+        } else if (threads < threadPool.getMaximumPoolSize()) {
+            threadPool.setCorePoolSize(threads);
+            threadPool.setMaximumPoolSize(threads);
+        }
+    }
+
+    // lookup threads wait for their batch, so flushing on them could dead lock
+    public ScheduledExecutorService getScheduler() {
+        return scheduler;
+    }
+
+    public int getQueueSize() {
+        return waiting.get();
+    }
+
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public void shutDown() {
+        scheduler.shutdownNow();
+        executorService.shutdownNow();
+    }
+
+    private void reject() {
+        rejected.increment();
+        throw new RejectedExecutionException("Too many generation lookups are waiting.");
+    }
+
+    // virtual threads need JDK 21, while the extension is built for JDK 11
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            log.warn("Virtual threads are not supported by this JVM, using a thread pool for generation lookups.");
+            return null;
+        }
+    }
+
+    private static class NamedThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger();
+
+        private NamedThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(final @NotNull Runnable runnable) {
+            final var thread = new Thread(runnable, prefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
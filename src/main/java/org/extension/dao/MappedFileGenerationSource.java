@@ -0,0 +1,197 @@
+package org.extension.dao;
+
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Generations from a memory mapped file, so even very large fleets take no heap and are shared with the page cache.
+ * <p>
+ * The file contains a header ("FCG1" and the number of cars), a sorted index of record offsets and the records
+ * themselves (length of the UTF-8 client id, client id, generation). Lookups are a binary search over the index.
+ * Files are created with {@link #write}, e.g. from a CSV fleet list or a DB snapshot, and read once with {@link #read}.
+ */
+public class MappedFileGenerationSource implements GenerationSource {
+    private static final @NotNull Logger log = LoggerFactory.getLogger(MappedFileGenerationSource.class);
+
+    private static final int MAGIC = 0x46434731; // "FCG1"
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+    private static final byte OLD = 1;
+    private static final byte NEW = 2;
+
+    private final MappedByteBuffer buffer;
+    private final int count;
+    private final Timestamp writtenAt;
+
+    public MappedFileGenerationSource(final Path file) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("'" + file + "' is not a generation file.");
+        }
+        this.count = buffer.getInt(Integer.BYTES);
+        this.writtenAt = new Timestamp(Files.getLastModifiedTime(file).toMillis());
+        log.info("Mapped generations of {} cars from '{}'.", count, file);
+    }
+
+    @Override
+    public CarGeneration findGeneration(final String clientId) {
+        final byte[] key = clientId.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final int record = recordOffset(middle);
+            final int comparison = compare(record, key);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return generation(record);
+            }
+        }
+        return CarGeneration.UNKNOWN;
+    }
+
+    @Override
+    public Timestamp loadAllGenerations(final BiConsumer<String, CarGeneration> consumer) {
+        for (int i = 0; i < count; i++) {
+            final int record = recordOffset(i);
+            final byte[] key = new byte[keyLength(record)];
+            buffer.duplicate().position(record + Short.BYTES).get(key);
+            consumer.accept(new String(key, StandardCharsets.UTF_8), generation(record));
+        }
+        return writtenAt;
+    }
+
+    @Override
+    public boolean isLocal() {
+        return true;
+    }
+
+    @Override
+    public void shutDown() {
+        // the mapping is released once the buffer is garbage collected
+    }
+
+    // streams the file without mapping it, for reading it once like a snapshot; returns the number of cars read
+    public static int read(final Path file, final BiConsumer<String, CarGeneration> consumer) throws IOException {
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("'" + file + "' is not a generation file.");
+            }
+            final int count = in.readInt();
+            // the records follow the index in the same order
+            long index = (long) count * Integer.BYTES;
+            while (index > 0) {
+                final int skipped = in.skipBytes((int) Math.min(index, Integer.MAX_VALUE));
+                if (skipped <= 0) {
+                    throw new EOFException("'" + file + "' is truncated.");
+                }
+                index -= skipped;
+            }
+            for (int i = 0; i < count; i++) {
+                final byte[] key = new byte[in.readUnsignedShort()];
+                in.readFully(key);
+                consumer.accept(new String(key, StandardCharsets.UTF_8),
+                        in.readByte() == OLD ? CarGeneration.OLD : CarGeneration.NEW);
+            }
+            return count;
+        }
+    }
+
+    // replaces the given file atomically, returns the number of cars written
+    public static <E extends Exception> int write(final Path file, final GenerationLoader<E> loader) throws IOException, E {
+        // like in DB, every client id has one generation: later entries replace earlier ones
+        final Map<String, CarGeneration> latest = new HashMap<>();
+        loader.load((clientId, generation) -> {
+            if (generation == CarGeneration.UNKNOWN) {
+                latest.remove(clientId);
+            } else {
+                latest.put(clientId, generation);
+            }
+        });
+        final List<byte[]> keys = new ArrayList<>(latest.size());
+        final List<CarGeneration> generations = new ArrayList<>(latest.size());
+        latest.forEach((clientId, generation) -> {
+            keys.add(clientId.getBytes(StandardCharsets.UTF_8));
+            generations.add(generation);
+        });
+
+        final Integer[] order = new Integer[keys.size()];
+        Arrays.setAll(order, i -> i);
+        Arrays.sort(order, (first, second) -> Arrays.compareUnsigned(keys.get(first), keys.get(second)));
+
+        final Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(order.length);
+            int offset = HEADER_SIZE + order.length * Integer.BYTES;
+            for (Integer index : order) {
+                final byte[] key = keys.get(index);
+                if (key.length > 0xFFFF) {
+                    throw new IOException("Client id too long for generation file.");
+                }
+                out.writeInt(offset);
+                offset += Short.BYTES + key.length + 1;
+            }
+            for (Integer index : order) {
+                final byte[] key = keys.get(index);
+                out.writeShort(key.length);
+                out.write(key);
+                out.writeByte(generations.get(index) == CarGeneration.OLD ? OLD : NEW);
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return order.length;
+    }
+
+    private int recordOffset(final int index) {
+        return buffer.getInt(HEADER_SIZE + index * Integer.BYTES);
+    }
+
+    private int keyLength(final int record) {
+        return Short.toUnsignedInt(buffer.getShort(record));
+    }
+
+    private CarGeneration generation(final int record) {
+        return buffer.get(record + Short.BYTES + keyLength(record)) == OLD ? CarGeneration.OLD : CarGeneration.NEW;
+    }
+
+    // like Arrays.compareUnsigned
+    private int compare(final int record, final byte[] key) {
+        final int length = keyLength(record);
+        final int start = record + Short.BYTES;
+        final int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            final int difference = Byte.toUnsignedInt(buffer.get(start + i)) - Byte.toUnsignedInt(key[i]);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return length - key.length;
+    }
+}
@@ -0,0 +1,41 @@
+package org.extension.matcher;
+
+/**
+ * Result of classifying a topic: the route it belongs to and the position of the client id inside of the topic.
+ */
+public class TopicMatch {
+    private final String topic;
+    private final String route;
+    private final int clientIdStart;
+    private final int clientIdEnd;
+
+    TopicMatch(String topic, String route, int clientIdStart, int clientIdEnd) {
+        this.topic = topic;
+        this.route = route;
+        this.clientIdStart = clientIdStart;
+        this.clientIdEnd = clientIdEnd;
+    }
+
+    /**
+     * @return last topic level the route was configured with, e.g. "temperature"
+     */
+    public String getRoute() {
+        return route;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public int getClientIdStart() {
+        return clientIdStart;
+    }
+
+    public int getClientIdEnd() {
+        return clientIdEnd;
+    }
+
+    public String getClientId() {
+        return topic.substring(clientIdStart, clientIdEnd);
+    }
+}
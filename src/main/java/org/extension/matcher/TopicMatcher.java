@@ -1,28 +1,75 @@
 package org.extension.matcher;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Collection;
+import java.util.List;
 
+/**
+ * Classifies topics of the form "fancy-cars/&lt;clientId&gt;/&lt;route&gt;" in a single pass without regular
+ * expressions and without allocating for topics which do not match.
+ * <p>
+ * Same rules as the former "(fancy-cars/)(.*)(/temperature)" patterns: the client id is everything between the prefix
+ * and the last topic level, it may contain '/' but no line terminators, and blank client ids do not match.
+ */
 public class TopicMatcher {
 
-    public static final Pattern temperaturePattern = Pattern.compile("(fancy-cars/)(.*)(/temperature)");
-    public static final Pattern commandPattern = Pattern.compile("(fancy-cars/)(.*)(/command)");
+    public static final String DEFAULT_PREFIX = "fancy-cars";
+    public static final String TEMPERATURE = "temperature";
+    public static final String COMMAND = "command";
 
-    public String getClientIfMatchTemperature(String topic) {
-        Matcher temperatureMatcher = temperaturePattern.matcher(topic);
-        if (temperatureMatcher.matches()) {
-            var clientID = temperatureMatcher.group(2);
-            return clientID.isBlank() ? null : clientID; // Seems to be an error if topic is fancy-cars//temperature
+    private final String prefix;
+    private final String[] routes;
+
+    public TopicMatcher() {
+        this(DEFAULT_PREFIX, List.of(TEMPERATURE, COMMAND));
+    }
+
+    public TopicMatcher(String prefix, Collection<String> routes) {
+        this.prefix = prefix + "/";
+        this.routes = routes.toArray(new String[0]);
+    }
+
+    public TopicMatch match(String topic) {
+        if (!topic.startsWith(prefix)) {
+            return null;
+        }
+        final int lastLevel = topic.lastIndexOf('/') + 1;
+        if (lastLevel <= prefix.length()) {
+            return null;
+        }
+        for (String route : routes) {
+            if (topic.length() - lastLevel == route.length() && topic.startsWith(route, lastLevel)) {
+                return isValidClientId(topic, prefix.length(), lastLevel - 1)
+                        ? new TopicMatch(topic, route, prefix.length(), lastLevel - 1)
+                        : null;
+            }
         }
         return null;
     }
 
+    public String getClientIfMatchTemperature(String topic) {
+        return getClientIfMatch(topic, TEMPERATURE);
+    }
+
     public String getClientIfMatchCommand(String topic) {
-        Matcher commandMatcher = commandPattern.matcher(topic);
-        if (commandMatcher.matches()) {
-            var clientID = commandMatcher.group(2);
-            return clientID.isBlank() ? null : clientID; // Seems to be an error if topic is fancy-cars//command
+        return getClientIfMatch(topic, COMMAND);
+    }
+
+    private String getClientIfMatch(String topic, String route) {
+        final var match = match(topic);
+        return match != null && match.getRoute().equals(route) ? match.getClientId() : null;
+    }
+
+    private static boolean isValidClientId(String topic, int start, int end) {
+        boolean blank = true; // Seems to be an error if topic is fancy-cars//temperature
+        for (int i = start; i < end; i++) {
+            final char c = topic.charAt(i);
+            if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') { // not matched by '.'
+                return false;
+            }
+            if (blank && !Character.isWhitespace(c)) {
+                blank = false;
+            }
         }
-        return null;
+        return !blank;
     }
 }
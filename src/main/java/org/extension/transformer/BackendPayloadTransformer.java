@@ -1,46 +1,83 @@
 package org.extension.transformer;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import com.hivemq.extension.sdk.api.annotations.NotNull;
-import com.hivemq.extension.sdk.api.packets.publish.ModifiableOutboundPublish;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.Optional;
 
+/**
+ * Transforms backend command payloads like {"command": "open", "subject": "door"} into "open door".
+ * <p>
+ * Only the "command" and "subject" fields are extracted with a streaming {@link JsonReader}, everything else is
+ * skipped. Parsing follows the rules of Gson data binding into String fields: lenient syntax, numbers and booleans
+ * are taken as text, the last duplicate field wins and nothing may follow the JSON object.
+ */
 public class BackendPayloadTransformer implements PayloadTransformer {
 
     private static final @NotNull Logger log = LoggerFactory.getLogger(BackendPayloadTransformer.class);
 
-    @Override
-    public Optional<String> transformPayload(ModifiableOutboundPublish publishPacket) {
-        var maybePayload = publishPacket.getPayload().map(payload -> StandardCharsets.UTF_8.decode(payload).toString());
-
-        if (maybePayload.isPresent()) {
-            var payload = maybePayload.get();
+    private static final String COMMAND = "command";
+    private static final String SUBJECT = "subject";
+    private static final byte SEPARATOR = ' ';
 
-            var gson = new Gson();
-            BackendResponse backendResponse;
+    @Override
+    public Optional<ByteBuffer> transformPayload(ByteBuffer original) {
+        final var chars = StandardCharsets.UTF_8.decode(original.duplicate());
 
-            try {
-                backendResponse = gson.fromJson(payload, BackendResponse.class);
-            } catch (JsonSyntaxException e) {
-                log.error("Exception during parsing response from backend. {}", payload);
-                return Optional.empty();
+        String command = null;
+        String subject = null;
+        try (var reader = new JsonReader(new CharArrayReader(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining()))) {
+            reader.setLenient(true);
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case COMMAND:
+                        command = nextString(reader);
+                        break;
+                    case SUBJECT:
+                        subject = nextString(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            // like Gson, only the JSON object itself is read leniently
+            reader.setLenient(false);
+            if (reader.peek() != JsonToken.END_DOCUMENT) {
+                throw new IOException("JSON document was not fully consumed.");
             }
+        } catch (IOException | IllegalStateException e) {
+            log.error("Exception during parsing response from backend. {}", chars);
+            return Optional.empty();
+        }
 
-            var command = backendResponse.command == null ? "" : backendResponse.command;
-            var subject = backendResponse.subject == null ? "" : backendResponse.subject;
+        final byte[] commandBytes = command == null ? new byte[0] : command.getBytes(StandardCharsets.UTF_8);
+        final byte[] subjectBytes = subject == null ? new byte[0] : subject.getBytes(StandardCharsets.UTF_8);
+        final byte[] result = new byte[commandBytes.length + 1 + subjectBytes.length];
+        System.arraycopy(commandBytes, 0, result, 0, commandBytes.length);
+        result[commandBytes.length] = SEPARATOR;
+        System.arraycopy(subjectBytes, 0, result, commandBytes.length + 1, subjectBytes.length);
 
-            return Optional.of(String.format("%s %s", command, subject));
-        }
-        return Optional.empty();
+        return Optional.of(ByteBuffer.wrap(result));
     }
 
-    private static class BackendResponse {
-        private String command;
-        private String subject;
+    private static String nextString(JsonReader reader) throws IOException {
+        switch (reader.peek()) {
+            case NULL:
+                reader.nextNull();
+                return null;
+            case BOOLEAN:
+                return Boolean.toString(reader.nextBoolean());
+            default:
+                return reader.nextString();
+        }
     }
 }
@@ -0,0 +1,149 @@
+package org.extension.transformer;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+/**
+ * Encodes temperature readings into a fixed 6 byte layout for subscribers on metered links:
+ * <pre>
+ * byte 0     format version, always 1
+ * byte 1     unit: 0 unknown, 1 celsius, 2 fahrenheit
+ * byte 2-5   temperature as IEEE 754 single precision float, big endian
+ * </pre>
+ * Accepts old generation readings like "21.5°C" as well as new generation readings like
+ * { "temperature": "21.5", "unit": "celsius" }. Readings whose temperature is not a plain decimal can not be encoded.
+ */
+public class BinaryTemperatureTransformer implements PayloadTransformer {
+    private static final @NotNull Logger log = LoggerFactory.getLogger(BinaryTemperatureTransformer.class);
+
+    public static final int ENCODED_LENGTH = 6;
+    public static final byte FORMAT_VERSION = 1;
+    public static final byte UNKNOWN_UNIT = 0;
+    public static final byte CELSIUS = 1;
+    public static final byte FAHRENHEIT = 2;
+
+    private static final String TEMPERATURE = "temperature";
+    private static final String UNIT = "unit";
+
+    @Override
+    public Optional<ByteBuffer> transformPayload(ByteBuffer payload) {
+        final int first = firstNonWhitespace(payload);
+        if (first >= 0 && payload.get(first) == '{') {
+            return encodeJson(payload);
+        }
+        return encodeLegacy(payload);
+    }
+
+    private static Optional<ByteBuffer> encodeLegacy(ByteBuffer payload) {
+        final int start = payload.position();
+        final int end = payload.limit();
+        final int degreeSign = DevicePayloadTransformer.indexOfDegreeSign(payload, start, end);
+        if (degreeSign < 0) {
+            log.error("Wrong message format. Degree sign is not present.");
+            return Optional.empty();
+        }
+
+        final byte[] temperature = new byte[degreeSign - start];
+        for (int i = 0; i < temperature.length; i++) {
+            temperature[i] = payload.get(start + i);
+        }
+
+        final int unitStart = degreeSign + DevicePayloadTransformer.DEGREE_SIGN_LENGTH;
+        final int nextDegreeSign = DevicePayloadTransformer.indexOfDegreeSign(payload, unitStart, end);
+        final int unitEnd = nextDegreeSign < 0 ? end : nextDegreeSign;
+        byte unit = UNKNOWN_UNIT;
+        if (unitEnd - unitStart == 1) {
+            switch (payload.get(unitStart)) {
+                case 'C':
+                    unit = CELSIUS;
+                    break;
+                case 'F':
+                    unit = FAHRENHEIT;
+                    break;
+                default:
+                    break;
+            }
+        }
+        return encode(new String(temperature, StandardCharsets.UTF_8), unit);
+    }
+
+    private static Optional<ByteBuffer> encodeJson(ByteBuffer payload) {
+        final var chars = StandardCharsets.UTF_8.decode(payload.duplicate());
+
+        String temperature = null;
+        byte unit = UNKNOWN_UNIT;
+        try (var reader = new JsonReader(new CharArrayReader(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining()))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case TEMPERATURE:
+                        if (reader.peek() == JsonToken.NULL) {
+                            reader.nextNull();
+                            temperature = null;
+                        } else {
+                            temperature = reader.nextString();
+                        }
+                        break;
+                    case UNIT:
+                        unit = reader.peek() == JsonToken.STRING ? unitOf(reader.nextString()) : skip(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (IOException | IllegalStateException e) {
+            log.error("Exception during parsing temperature reading. {}", chars);
+            return Optional.empty();
+        }
+        return encode(temperature, unit);
+    }
+
+    private static Optional<ByteBuffer> encode(String temperature, byte unit) {
+        final String trimmed = temperature == null ? "" : temperature.trim();
+        final float value = DevicePayloadTransformer.isDecimal(trimmed) ? Float.parseFloat(trimmed) : Float.NaN;
+        // decimals beyond the float range parse to infinity
+        if (!Float.isFinite(value)) {
+            log.error("Temperature '{}' can not be encoded, it is not a number.", temperature);
+            return Optional.empty();
+        }
+
+        final ByteBuffer result = ByteBuffer.allocate(ENCODED_LENGTH);
+        result.put(FORMAT_VERSION).put(unit).putFloat(value);
+        return Optional.of(result.flip());
+    }
+
+    private static byte unitOf(String name) {
+        if (DegreeUnit.CELSIUS.getName().equals(name)) {
+            return CELSIUS;
+        }
+        if (DegreeUnit.FAHRENHEIT.getName().equals(name)) {
+            return FAHRENHEIT;
+        }
+        return UNKNOWN_UNIT;
+    }
+
+    private static byte skip(JsonReader reader) throws IOException {
+        reader.skipValue();
+        return UNKNOWN_UNIT;
+    }
+
+    private static int firstNonWhitespace(ByteBuffer payload) {
+        for (int i = payload.position(); i < payload.limit(); i++) {
+            final byte b = payload.get(i);
+            if (b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
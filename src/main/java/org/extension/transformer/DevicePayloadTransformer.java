@@ -1,52 +1,132 @@
 package org.extension.transformer;
 
 import com.hivemq.extension.sdk.api.annotations.NotNull;
-import com.hivemq.extension.sdk.api.packets.publish.ModifiableOutboundPublish;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.Optional;
-import java.util.regex.Pattern;
 
+/**
+ * Transforms old generation temperature payloads like "21.5°C" into
+ * { "temperature": "21.5", "unit": "celsius" }.
+ * <p>
+ * Works directly on the UTF-8 bytes: the degree sign is always encoded as 0xC2 0xB0, which can not be part of any
+ * other character. The only allocation per message is the resulting payload, which is handed over to the broker.
+ */
 public class DevicePayloadTransformer implements PayloadTransformer {
     private static final @NotNull Logger log = LoggerFactory.getLogger(DevicePayloadTransformer.class);
 
-    private static final String NEW_GEN_TEMPLATE = "{ \"temperature\": \"%s\", \"unit\": \"%s\" }";
+    private static final byte DEGREE_SIGN_FIRST_BYTE = (byte) 0xC2;
+    private static final byte DEGREE_SIGN_SECOND_BYTE = (byte) 0xB0;
+    static final int DEGREE_SIGN_LENGTH = 2;
+
+    // { "temperature": "%s", "unit": "%s" }
+    private static final byte[] NEW_GEN_TEMPLATE_START = bytes("{ \"temperature\": \"");
+    private static final byte[] NEW_GEN_TEMPLATE_MIDDLE = bytes("\", \"unit\": \"");
+    private static final byte[] NEW_GEN_TEMPLATE_END = bytes("\" }");
+
+    private static final byte[] CELSIUS = bytes(DegreeUnit.CELSIUS.getName());
+    private static final byte[] FAHRENHEIT = bytes(DegreeUnit.FAHRENHEIT.getName());
+    private static final byte[] NO_UNIT = new byte[0];
 
     @Override
-    public Optional<String> transformPayload(ModifiableOutboundPublish publishPacket) {
-        var maybeOriginal = publishPacket.getPayload().map(payload -> StandardCharsets.UTF_8.decode(payload).toString());
-
-        if (maybeOriginal.isPresent()) {
-            String original = maybeOriginal.get();
-            if (original.contains("°")) {
-                String[] parts = original.split(Pattern.quote("°"));
-                if (parts.length < 2) {
-                    log.error("Wrong message format. Degree sign is not present.");
-                    return Optional.empty();
-                }
-                String temperature = parts[0];
-                String units = parts[1];
-
-                return Optional.of(String.format(NEW_GEN_TEMPLATE, temperature, convertUnits(units)));
-
-            } else {
-                log.error("Wrong message format. Degree sign is not present.");
-                return Optional.empty();
+    public Optional<ByteBuffer> transformPayload(ByteBuffer payload) {
+        final int start = payload.position();
+        final int end = payload.limit();
+
+        final int degreeSign = indexOfDegreeSign(payload, start, end);
+        // Same as "15°".split("°") giving less than 2 parts: nothing but degree signs after the first one
+        if (degreeSign < 0 || containsOnlyDegreeSigns(payload, degreeSign, end)) {
+            log.error("Wrong message format. Degree sign is not present.");
+            return Optional.empty();
+        }
+
+        final int unitsStart = degreeSign + DEGREE_SIGN_LENGTH;
+        final int nextDegreeSign = indexOfDegreeSign(payload, unitsStart, end);
+        final int unitsEnd = nextDegreeSign < 0 ? end : nextDegreeSign;
+        final byte[] units = convertUnits(payload, unitsStart, unitsEnd);
+
+        final int temperatureLength = degreeSign - start;
+        final byte[] result = new byte[NEW_GEN_TEMPLATE_START.length + temperatureLength
+                + NEW_GEN_TEMPLATE_MIDDLE.length + units.length + NEW_GEN_TEMPLATE_END.length];
+
+        int position = put(result, 0, NEW_GEN_TEMPLATE_START);
+        for (int i = start; i < degreeSign; i++) {
+            result[position++] = payload.get(i);
+        }
+        position = put(result, position, NEW_GEN_TEMPLATE_MIDDLE);
+        position = put(result, position, units);
+        put(result, position, NEW_GEN_TEMPLATE_END);
+
+        return Optional.of(ByteBuffer.wrap(result));
+    }
+
+    static int indexOfDegreeSign(ByteBuffer payload, int from, int to) {
+        for (int i = from; i < to - 1; i++) {
+            if (payload.get(i) == DEGREE_SIGN_FIRST_BYTE && payload.get(i + 1) == DEGREE_SIGN_SECOND_BYTE) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // plain decimals like "-21.5", unlike Float.parseFloat no NaN, Infinity, exponents, hex floats or type suffixes
+    static boolean isDecimal(String value) {
+        int i = value.startsWith("-") || value.startsWith("+") ? 1 : 0;
+        final int integerStart = i;
+        i = skipDigits(value, i);
+        if (i == integerStart) {
+            return false;
+        }
+        if (i < value.length() && value.charAt(i) == '.') {
+            final int fractionStart = ++i;
+            i = skipDigits(value, i);
+            if (i == fractionStart) {
+                return false;
+            }
+        }
+        return i == value.length();
+    }
+
+    private static int skipDigits(String value, int from) {
+        int i = from;
+        while (i < value.length() && value.charAt(i) >= '0' && value.charAt(i) <= '9') {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean containsOnlyDegreeSigns(ByteBuffer payload, int from, int to) {
+        for (int i = from; i < to; i += DEGREE_SIGN_LENGTH) {
+            if (i + 1 >= to || payload.get(i) != DEGREE_SIGN_FIRST_BYTE || payload.get(i + 1) != DEGREE_SIGN_SECOND_BYTE) {
+                return false;
             }
         }
-        return Optional.empty();
+        return true;
     }
 
-    private String convertUnits(String units) {
-        switch (units) {
-            case "C":
-                return DegreeUnit.CELSIUS.getName();
-            case "F":
-                return DegreeUnit.FAHRENHEIT.getName();
+    private static byte[] convertUnits(ByteBuffer payload, int from, int to) {
+        if (to - from != 1) {
+            return NO_UNIT;
+        }
+        switch (payload.get(from)) {
+            case 'C':
+                return CELSIUS;
+            case 'F':
+                return FAHRENHEIT;
             default:
-                return "";
+                return NO_UNIT;
         }
     }
+
+    private static int put(byte[] target, int position, byte[] source) {
+        System.arraycopy(source, 0, target, position, source.length);
+        return position + source.length;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
 }
@@ -1,10 +1,13 @@
 package org.extension.transformer;
 
-import com.hivemq.extension.sdk.api.packets.publish.ModifiableOutboundPublish;
-
+import java.nio.ByteBuffer;
 import java.util.Optional;
 
 public interface PayloadTransformer {
 
-    Optional<String> transformPayload(ModifiableOutboundPublish publishPacket);
+    /**
+     * @param payload UTF-8 encoded payload, its position and limit are left untouched
+     * @return transformed UTF-8 encoded payload or empty if the payload has wrong format
+     */
+    Optional<ByteBuffer> transformPayload(ByteBuffer payload);
 }
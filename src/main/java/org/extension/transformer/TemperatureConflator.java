@@ -0,0 +1,133 @@
+package org.extension.transformer;
+
+import org.extension.config.PropertiesHolder;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Drops old generation temperature readings like "21.5°C" which are superseded by the last delivered one, i.e.
+ * younger than the interval, with the same unit and within the delta. Unparsable readings are always delivered.
+ */
+public class TemperatureConflator {
+
+    // U+0000 must not occur in MQTT topics, so keys of different subscribers and topics never collide
+    private static final char KEY_SEPARATOR = '\u0000';
+    private static final int NO_UNIT = -1;
+
+    private final ConcurrentHashMap<String, Reading> lastDelivered = new ConcurrentHashMap<>();
+    private final AtomicLong lastSweep;
+    private final LongSupplier nanoTicker;
+
+    // applied live on configuration reload
+    private volatile long intervalNanos;
+    private volatile double delta;
+
+    public TemperatureConflator(PropertiesHolder propertiesHolder) {
+        this(propertiesHolder, System::nanoTime);
+    }
+
+    TemperatureConflator(PropertiesHolder propertiesHolder, LongSupplier nanoTicker) {
+        this.nanoTicker = nanoTicker;
+        this.lastSweep = new AtomicLong(nanoTicker.getAsLong());
+        reconfigure(propertiesHolder);
+    }
+
+    public void reconfigure(final PropertiesHolder propertiesHolder) {
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(propertiesHolder.getConflationInterval());
+        this.delta = propertiesHolder.getConflationDelta();
+        if (!isEnabled()) {
+            lastDelivered.clear();
+        }
+    }
+
+    public boolean isEnabled() {
+        return intervalNanos > 0;
+    }
+
+    // subscriberId is null to conflate the readings for all subscribers of the topic
+    public static String key(final String subscriberId, final String topic) {
+        return subscriberId == null ? topic : topic + KEY_SEPARATOR + subscriberId;
+    }
+
+    // does not consume the payload
+    public boolean offer(final String key, final ByteBuffer payload) {
+        final long interval = intervalNanos;
+        if (interval <= 0) {
+            return true;
+        }
+        final long now = nanoTicker.getAsLong();
+        sweepIfDue(now, interval);
+
+        final int degreeSign = DevicePayloadTransformer.indexOfDegreeSign(payload, payload.position(), payload.limit());
+        final double value = degreeSign < 0 ? Double.NaN : parseTemperature(payload, degreeSign);
+        if (Double.isNaN(value)) {
+            return true;
+        }
+        final int unit = unitOf(payload, degreeSign);
+
+        final var reading = new Reading(now, value, unit);
+        final var last = lastDelivered.putIfAbsent(key, reading);
+        if (last == null) {
+            return true;
+        }
+        synchronized (last) {
+            if (now - last.deliveredAt < interval && unit == last.unit && Math.abs(value - last.value) <= delta) {
+                return false;
+            }
+            last.deliveredAt = now;
+            last.value = value;
+            last.unit = unit;
+            return true;
+        }
+    }
+
+    public int size() {
+        return lastDelivered.size();
+    }
+
+    private void sweepIfDue(final long now, final long interval) {
+        final long last = lastSweep.get();
+        if (now - last >= interval && lastSweep.compareAndSet(last, now)) {
+            lastDelivered.values().removeIf(reading -> now - reading.deliveredAt >= interval);
+        }
+    }
+
+    private static double parseTemperature(final ByteBuffer payload, final int degreeSign) {
+        final int start = payload.position();
+        final byte[] temperature = new byte[degreeSign - start];
+        for (int i = 0; i < temperature.length; i++) {
+            temperature[i] = payload.get(start + i);
+        }
+        final var value = new String(temperature, StandardCharsets.UTF_8);
+        return DevicePayloadTransformer.isDecimal(value) ? Double.parseDouble(value) : Double.NaN;
+    }
+
+    // same distinction as the transformation makes
+    private static int unitOf(final ByteBuffer payload, final int degreeSign) {
+        final int unitStart = degreeSign + DevicePayloadTransformer.DEGREE_SIGN_LENGTH;
+        final int nextDegreeSign = DevicePayloadTransformer.indexOfDegreeSign(payload, unitStart, payload.limit());
+        final int unitEnd = nextDegreeSign < 0 ? payload.limit() : nextDegreeSign;
+        if (unitEnd - unitStart != 1) {
+            return NO_UNIT;
+        }
+        final byte unit = payload.get(unitStart);
+        return unit == 'C' || unit == 'F' ? unit : NO_UNIT;
+    }
+
+    private static class Reading {
+        private volatile long deliveredAt;
+        private double value;
+        private int unit;
+
+        private Reading(long deliveredAt, double value, int unit) {
+            this.deliveredAt = deliveredAt;
+            this.value = value;
+            this.unit = unit;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package org.extension.transformer;
+
+import org.extension.config.PropertiesHolder;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of transformed payloads, as cars send the same few payloads like "21°C" over and over again.
+ * All memoized transformers share one byte budget. Payloads of wrong format are never cached, so they are logged
+ * every time.
+ */
+public class TransformedPayloadCache {
+
+    private final boolean enabled;
+    // applied live on configuration reload
+    private volatile long maxBytes;
+    private volatile int maxPayloadSize;
+
+    private final List<ConcurrentHashMap<ByteBuffer, ByteBuffer>> segments = new CopyOnWriteArrayList<>();
+    private final AtomicLong bytes = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public TransformedPayloadCache(PropertiesHolder propertiesHolder) {
+        this.enabled = propertiesHolder.getPayloadCacheMaxBytes() > 0
+                && propertiesHolder.getPayloadCacheMaxPayloadSize() > 0;
+        reconfigure(propertiesHolder);
+    }
+
+    // enabling the cache later needs a restart
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void reconfigure(final PropertiesHolder propertiesHolder) {
+        this.maxPayloadSize = propertiesHolder.getPayloadCacheMaxPayloadSize();
+        this.maxBytes = propertiesHolder.getPayloadCacheMaxBytes();
+        evictIfNeeded();
+    }
+
+    public PayloadTransformer memoize(final PayloadTransformer transformer) {
+        if (!isEnabled()) {
+            return transformer;
+        }
+        // ByteBuffer equality and hash code are defined by the remaining content
+        final ConcurrentHashMap<ByteBuffer, ByteBuffer> entries = new ConcurrentHashMap<>();
+        segments.add(entries);
+        return payload -> {
+            if (payload.remaining() > maxPayloadSize) {
+                return transformer.transformPayload(payload);
+            }
+
+            final var cached = entries.get(payload);
+            if (cached != null) {
+                hits.increment();
+                return Optional.of(cached.duplicate());
+            }
+
+            misses.increment();
+            return transformer.transformPayload(payload).map(transformed -> {
+                final var result = transformed.asReadOnlyBuffer();
+                put(entries, copy(payload), result);
+                return result.duplicate();
+            });
+        };
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    private void put(final ConcurrentHashMap<ByteBuffer, ByteBuffer> entries, final ByteBuffer payload,
+                     final ByteBuffer transformed) {
+        if (entries.putIfAbsent(payload, transformed) == null) {
+            bytes.addAndGet(payload.remaining() + transformed.remaining());
+            evictIfNeeded();
+        }
+    }
+
+    // cheap approximation of random eviction
+    private void evictIfNeeded() {
+        for (ConcurrentHashMap<ByteBuffer, ByteBuffer> entries : segments) {
+            final var iterator = entries.entrySet().iterator();
+            while (bytes.get() > maxBytes && iterator.hasNext()) {
+                final var entry = iterator.next();
+                if (entries.remove(entry.getKey(), entry.getValue())) {
+                    bytes.addAndGet(-(entry.getKey().remaining() + entry.getValue().remaining()));
+                    evictions.increment();
+                }
+            }
+        }
+    }
+
+    private static ByteBuffer copy(final ByteBuffer payload) {
+        final var copy = ByteBuffer.allocate(payload.remaining());
+        copy.put(payload.duplicate()).flip();
+        return copy.asReadOnlyBuffer();
+    }
+}
@@ -0,0 +1,92 @@
+package org.extension;
+
+import com.codahale.metrics.MetricRegistry;
+import org.extension.cache.GenerationResolver;
+import org.extension.config.PropertiesHolder;
+import org.extension.dao.CarGeneration;
+import org.extension.transformer.BinaryTemperatureTransformer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+public class FancyCarOutboundInterceptorTest {
+
+    private static final Map<String, CarGeneration> GENERATIONS =
+            Map.of("12_old_34", CarGeneration.OLD, "56_new_78", CarGeneration.NEW);
+
+    private final FancyCarOutboundInterceptor interceptor = new FancyCarOutboundInterceptor(new GenerationResolver() {
+        @Override
+        public CarGeneration getGeneration(String clientId) {
+            return GENERATIONS.getOrDefault(clientId, CarGeneration.UNKNOWN);
+        }
+
+        @Override
+        public CarGeneration getGenerationIfKnown(String clientId) {
+            return getGeneration(clientId);
+        }
+    }, Runnable::run, PropertiesHolder.of(Map.of(
+            "transformationMode", "inbound", "binaryEncodingRoutes", "temperature")), new MetricRegistry());
+
+    @Test
+    public void inboundTransformedReadingIsOnlyEncodedForBinarySubscriber() {
+        for (var reading : Map.of("12_old_34", "21.5°C", "56_new_78", "{ \"temperature\": \"21.5\", \"unit\": \"celsius\" }")
+                .entrySet()) {
+            final var topic = "fancy-cars/" + reading.getKey() + "/temperature";
+            final var delivery = new FakeDelivery(reading.getValue());
+
+            interceptor.intercept(topic, null, false, delivery);
+            interceptor.interceptForBinarySubscriber(topic, "subscriber", delivery);
+
+            Assertions.assertFalse(delivery.prevented);
+            Assertions.assertEquals(BinaryTemperatureTransformer.ENCODED_LENGTH, delivery.payload.remaining());
+            Assertions.assertEquals(BinaryTemperatureTransformer.CELSIUS, delivery.payload.get(1));
+        }
+    }
+
+    @Test
+    public void inboundTransformedCommandIsNotTransformedAgainForBinarySubscriber() {
+        final var topic = "fancy-cars/12_old_34/command";
+        final var delivery = new FakeDelivery("{\"command\": \"open\", \"subject\": \"door\"}");
+
+        interceptor.intercept(topic, null, false, delivery);
+        interceptor.interceptForBinarySubscriber(topic, "subscriber", delivery);
+
+        Assertions.assertFalse(delivery.prevented);
+        Assertions.assertEquals("open door", StandardCharsets.UTF_8.decode(delivery.payload).toString());
+    }
+
+    private static class FakeDelivery implements PublishDelivery {
+        private ByteBuffer payload;
+        private boolean prevented;
+
+        private FakeDelivery(String payload) {
+            this.payload = ByteBuffer.wrap(payload.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public Optional<ByteBuffer> getPayload() {
+            return Optional.of(payload.asReadOnlyBuffer());
+        }
+
+        @Override
+        public void setPayload(ByteBuffer payload) {
+            this.payload = payload;
+        }
+
+        @Override
+        public void prevent() {
+            prevented = true;
+        }
+
+        @Override
+        public Runnable suspend(Duration timeout) {
+            return () -> {
+            };
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package org.extension;
+
+import com.hivemq.client.mqtt.MqttGlobalPublishFilter;
+import com.hivemq.client.mqtt.mqtt5.Mqtt5BlockingClient;
+import com.hivemq.client.mqtt.mqtt5.Mqtt5Client;
+import com.hivemq.extension.sdk.api.annotations.NotNull;
+import com.hivemq.testcontainer.core.MavenHiveMQExtensionSupplier;
+import com.hivemq.testcontainer.junit5.HiveMQTestContainerExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.testcontainers.containers.Network;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+import org.testcontainers.utility.MountableFile;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.DriverManager;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Two nodes sharing one DB, with the control message published to each node. HiveMQ CE containers do not form
+ * a cluster, so this covers applying a change on the node it is published to, not delivering it to other nodes.
+ */
+@Testcontainers
+class GenerationControlIT {
+
+    private static final @NotNull Network network = Network.newNetwork();
+
+    private static final String CONTROL_TOPIC = "fancy-cars-control/generations";
+    private static final String TEMPERATURE_TOPIC = "fancy-cars/12_old_34/temperature";
+
+    @RegisterExtension
+    public final @NotNull HiveMQTestContainerExtension node1 = createNode();
+
+    @RegisterExtension
+    public final @NotNull HiveMQTestContainerExtension node2 = createNode();
+
+    @Container
+    private final PostgreSQLContainer<?> postgresqlContainer = new PostgreSQLContainer<>(
+            DockerImageName.parse("postgres").withTag("latest"))
+            .withNetwork(network)
+            .withNetworkAliases("postgres_host")
+            .withDatabaseName("hive_mq")
+            .withUsername("root")
+            .withPassword("root")
+            .withInitScript("init_db.sql");
+
+    @Test
+    @Timeout(value = 2, unit = TimeUnit.MINUTES)
+    void test_upgraded_car_is_applied_on_each_node_it_is_published_to() throws Exception {
+        final var nodes = List.of(node1, node2);
+        for (HiveMQTestContainerExtension node : nodes) {
+            // cached as old generation for an hour
+            assertEquals("{ \"temperature\": \"15.0\", \"unit\": \"celsius\" }", publishTemperature(node, "15.0°C"));
+        }
+
+        try (var connection = DriverManager.getConnection(postgresqlContainer.getJdbcUrl(), "root", "root");
+             var statement = connection.createStatement()) {
+            statement.executeUpdate("UPDATE generation SET gen = 2, updated_at = now() WHERE clientid = '12_old_34'");
+        }
+
+        for (HiveMQTestContainerExtension node : nodes) {
+            final Mqtt5BlockingClient listener = connect(node, "control-listener");
+            final Mqtt5BlockingClient.Mqtt5Publishes controlPublishes = listener.publishes(MqttGlobalPublishFilter.ALL);
+            listener.subscribeWith().topicFilter(CONTROL_TOPIC).send();
+
+            final Mqtt5BlockingClient fleetManager = connect(node, "fleet-manager");
+            fleetManager.publishWith().topic(CONTROL_TOPIC).payload("12_old_34,new".getBytes(StandardCharsets.UTF_8)).send();
+            // applied at the latest before it is delivered to the listener
+            controlPublishes.receive();
+            fleetManager.disconnect();
+            listener.disconnect();
+        }
+
+        for (HiveMQTestContainerExtension node : nodes) {
+            final var payload = "{ \"temperature\": \"20.0\", \"unit\": \"celsius\" }";
+            assertEquals(payload, publishTemperature(node, payload));
+        }
+    }
+
+    @Test
+    @Timeout(value = 1, unit = TimeUnit.MINUTES)
+    void test_control_publish_of_other_client_is_prevented() throws Exception {
+        final Mqtt5BlockingClient listener = connect(node1, "control-listener");
+        final Mqtt5BlockingClient.Mqtt5Publishes controlPublishes = listener.publishes(MqttGlobalPublishFilter.ALL);
+        listener.subscribeWith().topicFilter(CONTROL_TOPIC).send();
+
+        final Mqtt5BlockingClient intruder = connect(node1, "intruder");
+        intruder.publishWith().topic(CONTROL_TOPIC).payload("12_old_34,new".getBytes(StandardCharsets.UTF_8)).send();
+
+        assertFalse(controlPublishes.receive(2, TimeUnit.SECONDS).isPresent());
+        assertEquals("{ \"temperature\": \"15.0\", \"unit\": \"celsius\" }", publishTemperature(node1, "15.0°C"));
+    }
+
+    private static String publishTemperature(HiveMQTestContainerExtension node, String payload) throws InterruptedException {
+        final Mqtt5BlockingClient client = connect(node, "old-car-12_old_34");
+        final Mqtt5BlockingClient.Mqtt5Publishes publishes = client.publishes(MqttGlobalPublishFilter.ALL);
+        client.subscribeWith().topicFilter(TEMPERATURE_TOPIC).send();
+
+        client.publishWith().topic(TEMPERATURE_TOPIC).payload(payload.getBytes(StandardCharsets.UTF_8)).send();
+        final var received = publishes.receive();
+        client.disconnect();
+
+        assertTrue(received.getPayload().isPresent());
+        return new String(received.getPayloadAsBytes(), StandardCharsets.UTF_8);
+    }
+
+    private static Mqtt5BlockingClient connect(HiveMQTestContainerExtension node, String clientId) {
+        final Mqtt5BlockingClient client = Mqtt5Client.builder()
+                .identifier(clientId)
+                .serverPort(node.getMqttPort())
+                .buildBlocking();
+        client.connect();
+        return client;
+    }
+
+    private static HiveMQTestContainerExtension createNode() {
+        return new HiveMQTestContainerExtension()
+                .withFileInExtensionHomeFolder(MountableFile.forClasspathResource("control/app.properties"),
+                        "hiveMQ-fancy-cars-extension",
+                        "")
+                .withExtension(MavenHiveMQExtensionSupplier.direct().get())
+                .withNetwork(network);
+    }
+}
@@ -0,0 +1,74 @@
+package org.extension;
+
+import com.codahale.metrics.MetricRegistry;
+import org.extension.cache.GenerationResolver;
+import org.extension.config.PropertiesHolder;
+import org.extension.dao.CarGeneration;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+public class GenerationControlInterceptorTest {
+
+    private final Map<String, CarGeneration> applied = new HashMap<>();
+    private GenerationControlInterceptor interceptor;
+
+    @BeforeEach
+    public void setUp() {
+        var propertiesHolder = PropertiesHolder.of(Map.of("controlClientIds", "fleet"));
+
+        interceptor = new GenerationControlInterceptor(new GenerationResolver() {
+            @Override
+            public CarGeneration getGeneration(String clientId) {
+                return CarGeneration.UNKNOWN;
+            }
+
+            @Override
+            public CarGeneration getGenerationIfKnown(String clientId) {
+                return null;
+            }
+
+            @Override
+            public void apply(String clientId, CarGeneration generation) {
+                applied.put(clientId, generation);
+            }
+        }, propertiesHolder, new MetricRegistry());
+    }
+
+    @Test
+    public void everyLineIsApplied() {
+        interceptor.applyChanges(payload("car-1,new\r\ncar-2, OLD\n\ncar,with,commas,1\ncar-3,unknown\n"));
+
+        Assertions.assertEquals(Map.of(
+                "car-1", CarGeneration.NEW,
+                "car-2", CarGeneration.OLD,
+                "car,with,commas", CarGeneration.OLD,
+                "car-3", CarGeneration.UNKNOWN), applied);
+    }
+
+    @Test
+    public void invalidLinesAreSkipped() {
+        interceptor.applyChanges(payload("car-1\n,new\ncar-2,ancient\ncar-3,0"));
+
+        Assertions.assertEquals(Map.of("car-3", CarGeneration.NEW), applied);
+    }
+
+    @Test
+    public void onlyDeliveriesToControlClientsAreApplied() {
+        interceptor.onDelivery("car-9", "fancy-cars-control/generations", Optional.of(payload("car-1,new")));
+        Assertions.assertTrue(applied.isEmpty());
+
+        interceptor.onDelivery("fleet", "fancy-cars-control/generations", Optional.of(payload("car-1,new")));
+        Assertions.assertEquals(Map.of("car-1", CarGeneration.NEW), applied);
+    }
+
+    private static ByteBuffer payload(String changes) {
+        return ByteBuffer.wrap(changes.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,126 @@
+package org.extension.cache;
+
+import org.extension.config.PropertiesHolder;
+import org.extension.dao.CarGeneration;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ConnectedCarGenerationsTest {
+
+    private final PropertiesHolder propertiesHolder = PropertiesHolder.of(Map.of("cacheRefreshAfterInSeconds", "60"));
+    private final AtomicLong nanoTime = new AtomicLong();
+    private final CountingResolver delegate = new CountingResolver(
+            new HashMap<>(Map.of("old", CarGeneration.OLD, "new", CarGeneration.NEW)));
+    private final ConnectedCarGenerations connectedCarGenerations =
+            new ConnectedCarGenerations(delegate, propertiesHolder, Runnable::run, nanoTime::get);
+
+    @Test
+    public void connectedCarIsKnownWithoutLookup() {
+        connectedCarGenerations.connected("old");
+        Assertions.assertEquals(1, delegate.lookups.get());
+
+        Assertions.assertEquals(CarGeneration.OLD, connectedCarGenerations.getGenerationIfKnown("old"));
+        Assertions.assertEquals(CarGeneration.OLD, connectedCarGenerations.getGeneration("old"));
+        Assertions.assertEquals(1, delegate.lookups.get());
+    }
+
+    @Test
+    public void disconnectedCarIsLeftToDelegate() {
+        final var connection = connectedCarGenerations.connected("new");
+        connectedCarGenerations.disconnected("new", connection);
+
+        Assertions.assertEquals(0, connectedCarGenerations.size());
+        Assertions.assertNull(connectedCarGenerations.getGenerationIfKnown("new"));
+        Assertions.assertEquals(CarGeneration.NEW, connectedCarGenerations.getGeneration("new"));
+        Assertions.assertEquals(2, delegate.lookups.get());
+    }
+
+    @Test
+    public void disconnectOfTakenOverConnectionKeepsNewOne() {
+        final var oldConnection = connectedCarGenerations.connected("old");
+        connectedCarGenerations.connected("old");
+        connectedCarGenerations.disconnected("old", oldConnection);
+
+        Assertions.assertEquals(1, connectedCarGenerations.size());
+        Assertions.assertEquals(CarGeneration.OLD, connectedCarGenerations.getGenerationIfKnown("old"));
+    }
+
+    @Test
+    public void keptGenerationIsRefreshedAfterRefreshAge() {
+        connectedCarGenerations.connected("old");
+        delegate.generations.put("old", CarGeneration.NEW);
+
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(59));
+        Assertions.assertEquals(CarGeneration.OLD, connectedCarGenerations.getGenerationIfKnown("old"));
+        Assertions.assertEquals(1, delegate.lookups.get());
+
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        connectedCarGenerations.getGenerationIfKnown("old");
+        Assertions.assertEquals(2, delegate.lookups.get());
+        Assertions.assertEquals(CarGeneration.NEW, connectedCarGenerations.getGenerationIfKnown("old"));
+
+        delegate.generations.remove("old");
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(60));
+        connectedCarGenerations.getGenerationIfKnown("old");
+        Assertions.assertNull(connectedCarGenerations.getGenerationIfKnown("old"));
+    }
+
+    @Test
+    public void unknownCarIsNotKept() {
+        connectedCarGenerations.connected("unknown");
+
+        Assertions.assertNull(connectedCarGenerations.getGenerationIfKnown("unknown"));
+        Assertions.assertEquals(CarGeneration.UNKNOWN, connectedCarGenerations.getGeneration("unknown"));
+        Assertions.assertEquals(2, delegate.lookups.get());
+    }
+
+    @Test
+    public void appliedGenerationReplacesConnectedOne() {
+        connectedCarGenerations.connected("old");
+
+        connectedCarGenerations.apply("old", CarGeneration.NEW);
+        Assertions.assertEquals(CarGeneration.NEW, connectedCarGenerations.getGenerationIfKnown("old"));
+
+        connectedCarGenerations.apply("old", CarGeneration.UNKNOWN);
+        Assertions.assertNull(connectedCarGenerations.getGenerationIfKnown("old"));
+        Assertions.assertEquals(1, delegate.lookups.get());
+    }
+
+    @Test
+    public void rejectedLookupIsDoneOnFirstUse() {
+        var rejecting = new ConnectedCarGenerations(delegate, propertiesHolder, lookup -> {
+            throw new RejectedExecutionException();
+        });
+        rejecting.connected("old");
+
+        Assertions.assertEquals(0, delegate.lookups.get());
+        Assertions.assertEquals(CarGeneration.OLD, rejecting.getGeneration("old"));
+    }
+
+    private static class CountingResolver implements GenerationResolver {
+        private final Map<String, CarGeneration> generations;
+        private final AtomicInteger lookups = new AtomicInteger();
+
+        private CountingResolver(Map<String, CarGeneration> generations) {
+            this.generations = generations;
+        }
+
+        @Override
+        public CarGeneration getGeneration(String clientId) {
+            lookups.incrementAndGet();
+            return generations.getOrDefault(clientId, CarGeneration.UNKNOWN);
+        }
+
+        @Override
+        public CarGeneration getGenerationIfKnown(String clientId) {
+            return null;
+        }
+    }
+}
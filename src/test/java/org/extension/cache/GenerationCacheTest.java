@@ -0,0 +1,288 @@
+package org.extension.cache;
+
+import org.extension.config.PropertiesHolder;
+import org.extension.dao.CarGeneration;
+import org.extension.dao.CarInfoDAO;
+import org.extension.dao.CircuitBreaker;
+import org.extension.dao.GenerationLookupBatcher;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class GenerationCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final CountingCarInfoDAO dao = new CountingCarInfoDAO(
+            Map.of("old", CarGeneration.OLD, "new", CarGeneration.NEW));
+    private PropertiesHolder propertiesHolder;
+    private GenerationLookupBatcher batcher;
+
+    @BeforeEach
+    public void setUp() {
+        loadProperties(Map.of());
+    }
+
+    @Test
+    public void secondLookupIsServedFromCache() {
+        var cache = new GenerationCache(batcher, propertiesHolder, Runnable::run, now::get);
+
+        Assertions.assertEquals(CarGeneration.OLD, cache.getGeneration("old"));
+        Assertions.assertEquals(CarGeneration.OLD, cache.getGeneration("old"));
+        Assertions.assertEquals(CarGeneration.NEW, cache.getGeneration("new"));
+
+        Assertions.assertEquals(2, dao.queries.get());
+        Assertions.assertEquals(1, cache.getHitCount());
+        Assertions.assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void appliedGenerationIsServedWithoutQuery() {
+        var cache = new GenerationCache(batcher, propertiesHolder, Runnable::run, now::get);
+        Assertions.assertEquals(CarGeneration.OLD, cache.getGeneration("old"));
+
+        cache.apply("old", CarGeneration.NEW);
+        Assertions.assertEquals(CarGeneration.NEW, cache.getGeneration("old"));
+        Assertions.assertEquals(1, dao.queries.get());
+
+        cache.apply("old", CarGeneration.UNKNOWN);
+        Assertions.assertNull(cache.getGenerationIfKnown("old"));
+    }
+
+    @Test
+    public void unknownClientExpiresAfterNegativeTtl() {
+        var cache = new GenerationCache(batcher, propertiesHolder, Runnable::run, now::get);
+
+        Assertions.assertEquals(CarGeneration.UNKNOWN, cache.getGeneration("unknown"));
+        now.addAndGet(TimeUnit.SECONDS.toNanos(9));
+        Assertions.assertEquals(CarGeneration.UNKNOWN, cache.getGeneration("unknown"));
+        Assertions.assertEquals(1, dao.queries.get());
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        Assertions.assertEquals(CarGeneration.UNKNOWN, cache.getGeneration("unknown"));
+        Assertions.assertEquals(2, dao.queries.get());
+    }
+
+    @Test
+    public void entryIsRefreshedInBackgroundAfterRefreshAge() {
+        var cache = new GenerationCache(batcher, propertiesHolder, Runnable::run, now::get);
+
+        cache.getGeneration("old");
+        now.addAndGet(TimeUnit.SECONDS.toNanos(45));
+        Assertions.assertEquals(CarGeneration.OLD, cache.getGeneration("old"));
+        Assertions.assertEquals(1, cache.getRefreshCount());
+
+        // refreshed entry lives for the full TTL again
+        now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        Assertions.assertEquals(CarGeneration.OLD, cache.getGeneration("old"));
+        Assertions.assertEquals(2, dao.queries.get());
+        Assertions.assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void restoredEntryIsLookedUpOnFirstRead() {
+        var cache = new GenerationCache(batcher, propertiesHolder, Runnable::run, now::get);
+        cache.restore(consumer -> {
+            consumer.accept("old", CarGeneration.NEW);
+            consumer.accept("gone", CarGeneration.UNKNOWN);
+        });
+
+        // the snapshot may be outdated, DB answers
+        Assertions.assertNull(cache.getGenerationIfKnown("old"));
+        Assertions.assertEquals(CarGeneration.OLD, cache.getGeneration("old"));
+        Assertions.assertEquals(CarGeneration.OLD, cache.getGenerationIfKnown("old"));
+        Assertions.assertNull(cache.getGenerationIfKnown("gone"));
+        Assertions.assertEquals(1, dao.queries.get());
+    }
+
+    @Test
+    public void restoredEntryIsServedIfDbFails() {
+        var cache = new GenerationCache(batcher, propertiesHolder, Runnable::run, now::get);
+        cache.restore(consumer -> consumer.accept("old", CarGeneration.NEW));
+        dao.failing = true;
+
+        Assertions.assertEquals(CarGeneration.NEW, cache.getGeneration("old"));
+        Assertions.assertEquals(1, cache.getStaleHitCount());
+    }
+
+    @Test
+    public void knownGenerationsSkipUnknownClients() {
+        var cache = new GenerationCache(batcher, propertiesHolder, Runnable::run, now::get);
+        cache.getGeneration("old");
+        cache.getGeneration("unknown");
+
+        final Map<String, CarGeneration> known = new HashMap<>();
+        cache.forEachKnown(known::put);
+        Assertions.assertEquals(Map.of("old", CarGeneration.OLD), known);
+    }
+
+    @Test
+    public void cacheIsBoundedByMaxSize() {
+        var cache = new GenerationCache(batcher, propertiesHolder, Runnable::run, now::get);
+
+        cache.getGeneration("old");
+        cache.getGeneration("new");
+        cache.getGeneration("unknown");
+
+        Assertions.assertEquals(2, cache.size());
+        Assertions.assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void dbErrorIsNotCached() {
+        var cache = new GenerationCache(batcher, propertiesHolder, Runnable::run, now::get);
+
+        dao.failing = true;
+        Assertions.assertNull(cache.getGeneration("old"));
+        dao.failing = false;
+        Assertions.assertEquals(CarGeneration.OLD, cache.getGeneration("old"));
+        Assertions.assertEquals(2, dao.queries.get());
+    }
+
+    @Test
+    public void concurrentLookupsShareOneQuery() throws Exception {
+        var cache = new GenerationCache(batcher, propertiesHolder, Runnable::run, now::get);
+        var executor = Executors.newFixedThreadPool(8);
+        dao.blockQueries = new CountDownLatch(1);
+        try {
+            var futures = new ArrayList<Future<CarGeneration>>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> cache.getGeneration("old")));
+            }
+            while (cache.getCoalescedCount() < 7) {
+                Thread.sleep(1);
+            }
+            dao.blockQueries.countDown();
+
+            for (var future : futures) {
+                Assertions.assertEquals(CarGeneration.OLD, future.get(5, TimeUnit.SECONDS));
+            }
+            Assertions.assertEquals(1, dao.queries.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void concurrentLookupsShareDbError() throws Exception {
+        var cache = new GenerationCache(batcher, propertiesHolder, Runnable::run, now::get);
+        var executor = Executors.newFixedThreadPool(2);
+        dao.blockQueries = new CountDownLatch(1);
+        dao.failing = true;
+        try {
+            var first = executor.submit(() -> cache.getGeneration("old"));
+            var second = executor.submit(() -> cache.getGeneration("old"));
+            while (cache.getCoalescedCount() < 1) {
+                Thread.sleep(1);
+            }
+            dao.blockQueries.countDown();
+
+            Assertions.assertNull(first.get(5, TimeUnit.SECONDS));
+            Assertions.assertNull(second.get(5, TimeUnit.SECONDS));
+            Assertions.assertEquals(1, dao.queries.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void expiredEntryIsServedWhileDbIsDown() {
+        var cache = new GenerationCache(batcher, propertiesHolder, Runnable::run, now::get);
+
+        cache.getGeneration("old");
+        now.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        dao.failing = true;
+        Assertions.assertEquals(CarGeneration.OLD, cache.getGeneration("old"));
+        Assertions.assertEquals(1, cache.getStaleHitCount());
+    }
+
+    @Test
+    public void unseenClientFollowsFailurePolicyWhileDbIsDown() {
+        loadProperties(Map.of("failurePolicy", "deliver"));
+        var cache = new GenerationCache(batcher, propertiesHolder, Runnable::run, now::get);
+
+        dao.failing = true;
+        Assertions.assertEquals(CarGeneration.NEW, cache.getGeneration("old"));
+        Assertions.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void openCircuitIsAnsweredWithoutQuery() {
+        loadProperties(Map.of("circuitBreakerFailureThreshold", "2"));
+        var cache = new GenerationCache(batcher, propertiesHolder, Runnable::run, now::get);
+
+        dao.failing = true;
+        for (int i = 0; i < 5; i++) {
+            Assertions.assertNull(cache.getGeneration("old"));
+        }
+        Assertions.assertEquals(2, dao.queries.get());
+    }
+
+    @Test
+    public void asyncLookupSharesCacheWithBlockingLookup() throws Exception {
+        var cache = new GenerationCache(batcher, propertiesHolder, Runnable::run, now::get);
+
+        Assertions.assertEquals(CarGeneration.OLD, cache.getGenerationAsync("old").get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(CarGeneration.OLD, cache.getGeneration("old"));
+        Assertions.assertEquals(1, dao.queries.get());
+
+        dao.failing = true;
+        Assertions.assertNull(cache.getGenerationAsync("new").get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void reloadedConfigurationIsApplied() {
+        var cache = new GenerationCache(batcher, propertiesHolder, Runnable::run, now::get);
+        cache.getGeneration("old");
+        cache.getGeneration("new");
+
+        cache.reconfigure(PropertiesHolder.of(Map.of("cacheMaxSize", "1", "failurePolicy", "deliver")));
+
+        Assertions.assertEquals(1, cache.size());
+        dao.failing = true;
+        Assertions.assertEquals(CarGeneration.NEW, cache.getGeneration("unseen"));
+    }
+
+    private void loadProperties(Map<String, String> extraProperties) {
+        final Map<String, String> values = new HashMap<>(Map.of("cacheMaxSize", "2", "cacheTtlInSeconds", "60",
+                "cacheNegativeTtlInSeconds", "10", "cacheRefreshAfterInSeconds", "40", "lookupBatchSize", "1"));
+        values.putAll(extraProperties);
+        propertiesHolder = PropertiesHolder.of(values);
+        batcher = new GenerationLookupBatcher(dao, new CircuitBreaker(propertiesHolder), propertiesHolder, null);
+    }
+
+    private static class CountingCarInfoDAO extends CarInfoDAO {
+        private final Map<String, CarGeneration> generations;
+        private final AtomicInteger queries = new AtomicInteger();
+        private volatile boolean failing;
+        private volatile CountDownLatch blockQueries = new CountDownLatch(0);
+
+        private CountingCarInfoDAO(Map<String, CarGeneration> generations) {
+            this.generations = generations;
+        }
+
+        @Override
+        public CarGeneration findGeneration(String clientId) throws SQLException {
+            queries.incrementAndGet();
+            try {
+                blockQueries.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (failing) {
+                throw new SQLException("DB is down");
+            }
+            return generations.getOrDefault(clientId, CarGeneration.UNKNOWN);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package org.extension.cache;
+
+import org.extension.config.PropertiesHolder;
+import org.extension.dao.CarGeneration;
+import org.extension.dao.GenerationSource;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+public class GenerationIndexSynchronizerTest {
+
+    private final GenerationIndex index = new GenerationIndex(new GenerationResolver() {
+        @Override
+        public CarGeneration getGeneration(String clientId) {
+            return null;
+        }
+
+        @Override
+        public CarGeneration getGenerationIfKnown(String clientId) {
+            return null;
+        }
+    });
+    private final FakeGenerationSource source = new FakeGenerationSource();
+
+    @Test
+    public void unexpectedExceptionDoesNotEscapeLoad() {
+        var synchronizer = new GenerationIndexSynchronizer(source, index, PropertiesHolder.of(Map.of()));
+        source.failure = new IllegalStateException("bad row");
+
+        Assertions.assertFalse(synchronizer.loadAll());
+        Assertions.assertDoesNotThrow(synchronizer::sync);
+
+        source.failure = null;
+        synchronizer.sync();
+        Assertions.assertTrue(index.isLoaded());
+    }
+
+    @Test
+    public void deletedRowsAreDroppedByFullReload() {
+        var synchronizer = new GenerationIndexSynchronizer(source, index,
+                PropertiesHolder.of(Map.of("preloadFullReloadIntervalInSeconds", "1")));
+        source.rows.put("car", CarGeneration.OLD);
+        synchronizer.sync();
+        Assertions.assertEquals(CarGeneration.OLD, index.getGenerationIfKnown("car"));
+
+        // polling for updated rows does not see the delete
+        source.rows.remove("car");
+        synchronizer.sync();
+        Assertions.assertEquals(CarGeneration.OLD, index.getGenerationIfKnown("car"));
+
+        sleep(1100);
+        synchronizer.sync();
+        Assertions.assertEquals(CarGeneration.UNKNOWN, index.getGenerationIfKnown("car"));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class FakeGenerationSource implements GenerationSource {
+        private final Map<String, CarGeneration> rows = new ConcurrentHashMap<>();
+        private volatile RuntimeException failure;
+
+        @Override
+        public CarGeneration findGeneration(String clientId) {
+            return rows.getOrDefault(clientId, CarGeneration.UNKNOWN);
+        }
+
+        @Override
+        public Timestamp loadAllGenerations(BiConsumer<String, CarGeneration> consumer) {
+            if (failure != null) {
+                throw failure;
+            }
+            rows.forEach(consumer);
+            return new Timestamp(System.currentTimeMillis());
+        }
+
+        @Override
+        public void shutDown() {
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package org.extension.cache;
+
+import org.extension.dao.CarGeneration;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class GenerationIndexTest {
+
+    private final GenerationIndex indexUnderTest = new GenerationIndex(new GenerationResolver() {
+        @Override
+        public CarGeneration getGeneration(String clientId) {
+            return CarGeneration.NEW;
+        }
+
+        @Override
+        public CarGeneration getGenerationIfKnown(String clientId) {
+            return null;
+        }
+    });
+
+    @Test
+    public void fallbackIsUsedUntilLoaded() {
+        Assertions.assertFalse(indexUnderTest.isLoaded());
+        Assertions.assertEquals(CarGeneration.NEW, indexUnderTest.getGeneration("anything"));
+        Assertions.assertNull(indexUnderTest.getGenerationIfKnown("anything"));
+    }
+
+    @Test
+    public void loadedIndexAnswersWithoutFallback() {
+        indexUnderTest.replaceAll(consumer -> {
+            consumer.accept("12_old_34", CarGeneration.OLD);
+            consumer.accept("56_new_78", CarGeneration.NEW);
+        });
+
+        Assertions.assertTrue(indexUnderTest.isLoaded());
+        Assertions.assertEquals(CarGeneration.OLD, indexUnderTest.getGeneration("12_old_34"));
+        Assertions.assertEquals(CarGeneration.NEW, indexUnderTest.getGeneration("56_new_78"));
+        Assertions.assertEquals(CarGeneration.UNKNOWN, indexUnderTest.getGeneration("anything"));
+    }
+
+    @Test
+    public void updatesAreAppliedOnTopOfLoad() {
+        indexUnderTest.replaceAll(consumer -> consumer.accept("car", CarGeneration.OLD));
+
+        indexUnderTest.update("car", CarGeneration.NEW);
+        indexUnderTest.update("added", CarGeneration.OLD);
+        Assertions.assertEquals(CarGeneration.NEW, indexUnderTest.getGeneration("car"));
+        Assertions.assertEquals(CarGeneration.OLD, indexUnderTest.getGeneration("added"));
+
+        indexUnderTest.update("car", CarGeneration.UNKNOWN);
+        Assertions.assertEquals(CarGeneration.UNKNOWN, indexUnderTest.getGeneration("car"));
+    }
+
+    @Test
+    public void appliedGenerationIsIndexedOnceLoaded() {
+        indexUnderTest.apply("car", CarGeneration.OLD);
+        Assertions.assertNull(indexUnderTest.getGenerationIfKnown("car"));
+
+        indexUnderTest.replaceAll(consumer -> consumer.accept("car", CarGeneration.OLD));
+        indexUnderTest.apply("car", CarGeneration.NEW);
+        Assertions.assertEquals(CarGeneration.NEW, indexUnderTest.getGenerationIfKnown("car"));
+    }
+
+    @Test
+    public void manyUpdatesAreMergedIntoTable() {
+        indexUnderTest.replaceAll(consumer -> consumer.accept("car", CarGeneration.OLD));
+
+        for (int i = 0; i < 5000; i++) {
+            indexUnderTest.update("car-" + i, i % 2 == 0 ? CarGeneration.OLD : CarGeneration.NEW);
+        }
+        indexUnderTest.update("car", CarGeneration.UNKNOWN);
+
+        for (int i = 0; i < 5000; i++) {
+            Assertions.assertEquals(i % 2 == 0 ? CarGeneration.OLD : CarGeneration.NEW,
+                    indexUnderTest.getGeneration("car-" + i));
+        }
+        Assertions.assertEquals(CarGeneration.UNKNOWN, indexUnderTest.getGeneration("car"));
+        Assertions.assertTrue(indexUnderTest.size() >= 5000);
+    }
+
+    @Test
+    public void restoredGenerationsAreReplacedByBulkLoad() {
+        indexUnderTest.restore(consumer -> consumer.accept("car", CarGeneration.OLD));
+        Assertions.assertFalse(indexUnderTest.isLoaded());
+        Assertions.assertEquals(CarGeneration.OLD, indexUnderTest.getGenerationIfKnown("car"));
+        // cars missing in the snapshot are still looked up until the bulk load completed
+        Assertions.assertEquals(CarGeneration.NEW, indexUnderTest.getGeneration("added-since"));
+        Assertions.assertNull(indexUnderTest.getGenerationIfKnown("added-since"));
+
+        indexUnderTest.replaceAll(consumer -> consumer.accept("car", CarGeneration.NEW));
+        indexUnderTest.restore(consumer -> consumer.accept("car", CarGeneration.OLD));
+        Assertions.assertTrue(indexUnderTest.isLoaded());
+        Assertions.assertEquals(CarGeneration.NEW, indexUnderTest.getGenerationIfKnown("car"));
+        Assertions.assertEquals(CarGeneration.UNKNOWN, indexUnderTest.getGeneration("added-since"));
+    }
+
+    @Test
+    public void knownGenerationsIncludeUpdates() {
+        indexUnderTest.replaceAll(consumer -> {
+            consumer.accept("car", CarGeneration.OLD);
+            consumer.accept("removed", CarGeneration.NEW);
+        });
+        indexUnderTest.update("car", CarGeneration.NEW);
+        indexUnderTest.update("removed", CarGeneration.UNKNOWN);
+        indexUnderTest.update("added", CarGeneration.OLD);
+
+        final Map<String, CarGeneration> known = new HashMap<>();
+        indexUnderTest.forEachKnown(known::put);
+        Assertions.assertEquals(Map.of("car", CarGeneration.NEW, "added", CarGeneration.OLD), known);
+    }
+
+    @Test
+    public void updateDuringBulkLoadIsKept() {
+        indexUnderTest.replaceAll(consumer -> {
+            consumer.accept("car", CarGeneration.OLD);
+            // e.g. announced on the control topic while the table is read
+            indexUnderTest.update("car", CarGeneration.NEW);
+            indexUnderTest.apply("other", CarGeneration.OLD);
+        });
+
+        Assertions.assertEquals(CarGeneration.NEW, indexUnderTest.getGenerationIfKnown("car"));
+        Assertions.assertEquals(CarGeneration.OLD, indexUnderTest.getGenerationIfKnown("other"));
+    }
+}
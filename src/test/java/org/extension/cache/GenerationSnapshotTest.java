@@ -0,0 +1,79 @@
+package org.extension.cache;
+
+import org.extension.dao.CarGeneration;
+import org.extension.dao.MappedFileGenerationSource;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class GenerationSnapshotTest {
+
+    @TempDir
+    Path extensionHome;
+
+    @Test
+    public void savedGenerationsAreRestoredOnNextStart() {
+        final var snapshot = new GenerationSnapshot(extensionHome.resolve("generations.snapshot"));
+        final var stopped = newIndex();
+        stopped.replaceAll(consumer -> {
+            consumer.accept("12_old_34", CarGeneration.OLD);
+            consumer.accept("56_new_78", CarGeneration.NEW);
+        });
+        Assertions.assertEquals(2, snapshot.save(stopped));
+
+        final var started = newIndex();
+        Assertions.assertEquals(2, snapshot.restore(started));
+        Assertions.assertEquals(CarGeneration.OLD, started.getGenerationIfKnown("12_old_34"));
+        Assertions.assertEquals(CarGeneration.NEW, started.getGenerationIfKnown("56_new_78"));
+    }
+
+    @Test
+    public void restoredSnapshotIsNotKeptMapped() throws IOException {
+        final var maps = Path.of("/proc/self/maps");
+        Assumptions.assumeTrue(Files.isReadable(maps));
+        final var file = extensionHome.resolve("generations.snapshot");
+        final var snapshot = new GenerationSnapshot(file);
+        final var stopped = newIndex();
+        stopped.replaceAll(consumer -> consumer.accept("12_old_34", CarGeneration.OLD));
+        snapshot.save(stopped);
+        final var mappedFile = file.toRealPath().toString();
+
+        Assertions.assertEquals(1, snapshot.restore(newIndex()));
+        Assertions.assertFalse(Files.readString(maps).contains(mappedFile));
+
+        // mappings of the file would show up
+        final var mapped = new MappedFileGenerationSource(file);
+        Assertions.assertTrue(Files.readString(maps).contains(mappedFile));
+        Assertions.assertEquals(CarGeneration.OLD, mapped.findGeneration("12_old_34"));
+    }
+
+    @Test
+    public void missingOrBrokenSnapshotStartsCold() throws IOException {
+        final var file = extensionHome.resolve("generations.snapshot");
+        final var started = newIndex();
+        Assertions.assertEquals(0, new GenerationSnapshot(file).restore(started));
+
+        Files.writeString(file, "not a snapshot");
+        Assertions.assertEquals(0, new GenerationSnapshot(file).restore(started));
+        Assertions.assertFalse(started.isLoaded());
+    }
+
+    private static GenerationIndex newIndex() {
+        return new GenerationIndex(new GenerationResolver() {
+            @Override
+            public CarGeneration getGeneration(String clientId) {
+                return null;
+            }
+
+            @Override
+            public CarGeneration getGenerationIfKnown(String clientId) {
+                return null;
+            }
+        });
+    }
+}
@@ -0,0 +1,67 @@
+package org.extension.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class ConfigurationWatcherTest {
+
+    @TempDir
+    Path extensionHome;
+
+    private final PropertiesHolder propertiesHolder = new PropertiesHolder();
+    private final LinkedBlockingQueue<Integer> reloadedTimeouts = new LinkedBlockingQueue<>();
+    private ScheduledExecutorService scheduler;
+    private ConfigurationWatcher watcher;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        Files.writeString(extensionHome.resolve("app.properties"), "timeoutInSeconds=5\n");
+        Assertions.assertTrue(propertiesHolder.tryToLoadProperties(extensionHome.toFile()));
+
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        watcher = new ConfigurationWatcher(propertiesHolder, extensionHome.toFile());
+        watcher.addListener(reloaded -> reloadedTimeouts.add(reloaded.getInterceptorTimeout()));
+        watcher.start(scheduler);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        watcher.stop();
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void changedFileIsReloaded() throws Exception {
+        Files.writeString(extensionHome.resolve("app.properties"), "timeoutInSeconds=7\n");
+
+        Assertions.assertEquals(Integer.valueOf(7), reloadedTimeouts.poll(10, TimeUnit.SECONDS));
+        Assertions.assertEquals(7, propertiesHolder.getInterceptorTimeout());
+    }
+
+    @Test
+    public void fileWithInvalidValueIsNotApplied() throws Exception {
+        Files.writeString(extensionHome.resolve("app.properties"), "timeoutInSeconds=7\ncacheTtlInSeconds=abc\n");
+
+        Assertions.assertNull(reloadedTimeouts.poll(2, TimeUnit.SECONDS));
+        Assertions.assertEquals(5, propertiesHolder.getInterceptorTimeout());
+    }
+
+    @Test
+    public void otherFilesAreIgnored() throws Exception {
+        Files.writeString(extensionHome.resolve("generations.csv"), "12_old_34,1\n");
+
+        Assertions.assertNull(reloadedTimeouts.poll(2, TimeUnit.SECONDS));
+        Assertions.assertEquals(5, propertiesHolder.getInterceptorTimeout());
+    }
+}
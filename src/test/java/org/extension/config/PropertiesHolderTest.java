@@ -0,0 +1,53 @@
+package org.extension.config;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class PropertiesHolderTest {
+
+    @Test
+    public void valuesAreParsedOnLoad() {
+        final var propertiesHolder = PropertiesHolder.of(Map.of(
+                "poolSize", " 4 ",
+                "topicRoutes", "temperature:device, command:backend",
+                "controlClientIds", "fleet,,ops",
+                "lookupMode", "Blocking",
+                "preloadEnabled", "TRUE"));
+
+        Assertions.assertEquals(4, propertiesHolder.getPoolSize());
+        Assertions.assertEquals(4, propertiesHolder.getPoolMinIdle());
+        Assertions.assertEquals(List.of("temperature", "command"),
+                List.copyOf(propertiesHolder.getTopicRoutes().keySet()));
+        Assertions.assertEquals(Set.of("fleet", "ops"), propertiesHolder.getControlClientIds());
+        Assertions.assertFalse(propertiesHolder.isAsyncLookup());
+        Assertions.assertTrue(propertiesHolder.isPreloadEnabled());
+        Assertions.assertEquals("drop", propertiesHolder.getFailurePolicy());
+    }
+
+    @Test
+    public void poolSizeDefaultsToOneConnection() {
+        final var propertiesHolder = PropertiesHolder.of(Map.of());
+
+        Assertions.assertEquals(1, propertiesHolder.getPoolSize());
+        Assertions.assertEquals(1, propertiesHolder.getConcurrencyMaxLimit());
+    }
+
+    @Test
+    public void invalidValuesAreRejected() {
+        for (var invalid : List.of(
+                Map.of("timeoutInSeconds", "abc"),
+                Map.of("poolSize", "0"),
+                Map.of("cacheTtlInSeconds", "-1"),
+                Map.of("conflationDelta", "NaN"),
+                Map.of("preloadEnabled", "yes"),
+                Map.of("generationSource", "ldap"),
+                Map.of("topicRoutes", "temperature"))) {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> PropertiesHolder.of(invalid),
+                    invalid.toString());
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package org.extension.dao;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.TimeUnit;
+
+public class CarInfoDAOTest {
+
+    @Test
+    public void lookupsFailRightAwayUntilThePoolStarted() {
+        final var dao = new CarInfoDAO();
+
+        final long start = System.nanoTime();
+        Assertions.assertThrows(SQLTransientConnectionException.class, () -> dao.findGeneration("car"));
+        Assertions.assertThrows(SQLTransientConnectionException.class, () -> dao.loadAllGenerations((id, gen) -> { }));
+        Assertions.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        Assertions.assertFalse(dao.isPoolStarted());
+    }
+}
@@ -0,0 +1,80 @@
+package org.extension.dao;
+
+import org.extension.config.PropertiesHolder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class CircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private CircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    public void setUp() {
+        var propertiesHolder = PropertiesHolder.of(Map.of("circuitBreakerFailureThreshold", "3",
+                "circuitBreakerSlowCallInMillis", "100", "circuitBreakerOpenInSeconds", "10"));
+        circuitBreaker = new CircuitBreaker(propertiesHolder, now::get);
+    }
+
+    @Test
+    public void opensAfterConsecutiveFailures() {
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+        circuitBreaker.onSuccess(0);
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+        Assertions.assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+
+        circuitBreaker.onFailure();
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        Assertions.assertFalse(circuitBreaker.tryAcquire());
+        Assertions.assertEquals(1, circuitBreaker.getRejectedCount());
+    }
+
+    @Test
+    public void slowQueriesCountAsFailures() {
+        for (int i = 0; i < 3; i++) {
+            circuitBreaker.onSuccess(TimeUnit.MILLISECONDS.toNanos(100));
+        }
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    public void singleProbeClosesCircuitAfterOpenDuration() {
+        open();
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+
+        Assertions.assertTrue(circuitBreaker.tryAcquire());
+        Assertions.assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        Assertions.assertFalse(circuitBreaker.tryAcquire());
+
+        circuitBreaker.onSuccess(0);
+        Assertions.assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        Assertions.assertTrue(circuitBreaker.tryAcquire());
+    }
+
+    @Test
+    public void failedProbeOpensCircuitAgain() {
+        open();
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+
+        Assertions.assertTrue(circuitBreaker.tryAcquire());
+        circuitBreaker.onFailure();
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(9));
+        Assertions.assertFalse(circuitBreaker.tryAcquire());
+    }
+
+    private void open() {
+        for (int i = 0; i < 3; i++) {
+            circuitBreaker.onFailure();
+        }
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+}
@@ -0,0 +1,141 @@
+package org.extension.dao;
+
+import org.extension.config.PropertiesHolder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class ConcurrencyLimiterTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(2);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(20);
+
+    private ConcurrencyLimiter limiter;
+
+    @BeforeEach
+    public void setUp() {
+        limiter = new ConcurrencyLimiter(properties(Map.of()));
+    }
+
+    @Test
+    public void limitStartsLowAndGrowsWhileLatencyIsFlat() {
+        Assertions.assertEquals(2, limiter.getLimit());
+
+        for (int i = 0; i < 200; i++) {
+            runQueries(limiter.getLimit(), FAST);
+        }
+        Assertions.assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    public void limitShrinksWhenLatencyRises() {
+        for (int i = 0; i < 200; i++) {
+            runQueries(limiter.getLimit(), FAST);
+        }
+        runQueries(10, SLOW);
+
+        Assertions.assertTrue(limiter.getLimit() < 5);
+    }
+
+    @Test
+    public void limitShrinksOnFailures() {
+        for (int i = 0; i < 200; i++) {
+            runQueries(limiter.getLimit(), FAST);
+        }
+        for (int i = 0; i < 10; i++) {
+            limiter.acquire();
+            limiter.onFailure();
+        }
+
+        Assertions.assertTrue(limiter.getLimit() < 5);
+        Assertions.assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void queryAboveLimitIsShedAfterMaxWait() {
+        limiter.acquire();
+        limiter.acquire();
+
+        Assertions.assertThrows(RejectedExecutionException.class, limiter::acquire);
+        Assertions.assertEquals(1, limiter.getShedCount());
+
+        limiter.release();
+        limiter.acquire();
+        Assertions.assertEquals(2, limiter.getInFlight());
+    }
+
+    @Test
+    public void waitingQueryGetsReleasedPermit() throws Exception {
+        limiter.acquire();
+        limiter.acquire();
+
+        var waiting = new Thread(limiter::acquire);
+        waiting.start();
+        limiter.onSuccess(FAST);
+        waiting.join(TimeUnit.SECONDS.toMillis(5));
+
+        Assertions.assertFalse(waiting.isAlive());
+        Assertions.assertEquals(2, limiter.getInFlight());
+        Assertions.assertEquals(0, limiter.getShedCount());
+    }
+
+    @Test
+    public void disablingLimitReleasesWaitingQuery() throws Exception {
+        limiter.reconfigure(properties(Map.of("lookupConcurrencyMaxWaitInMillis", "60000")));
+        limiter.acquire();
+        limiter.acquire();
+
+        var waiting = new Thread(limiter::acquire);
+        waiting.start();
+        limiter.reconfigure(properties(Map.of("lookupConcurrencyMaxLimit", "0")));
+        waiting.join(TimeUnit.SECONDS.toMillis(5));
+
+        Assertions.assertFalse(waiting.isAlive());
+        Assertions.assertEquals(3, limiter.getInFlight());
+    }
+
+    @Test
+    public void tryAcquireDoesNotWait() {
+        final long firstAttempt = System.nanoTime();
+        Assertions.assertTrue(limiter.tryAcquire(firstAttempt));
+        Assertions.assertTrue(limiter.tryAcquire(firstAttempt));
+
+        Assertions.assertFalse(limiter.tryAcquire(firstAttempt));
+        Assertions.assertThrows(RejectedExecutionException.class,
+                () -> limiter.tryAcquire(firstAttempt - TimeUnit.MILLISECONDS.toNanos(50)));
+        Assertions.assertEquals(1, limiter.getShedCount());
+        Assertions.assertEquals(2, limiter.getInFlight());
+    }
+
+    @Test
+    public void zeroMaxLimitDisablesLimit() {
+        var unlimited = new ConcurrencyLimiter(properties(Map.of("lookupConcurrencyMaxLimit", "0")));
+        for (int i = 0; i < 100; i++) {
+            unlimited.acquire();
+        }
+
+        Assertions.assertEquals(0, unlimited.getLimit());
+        Assertions.assertEquals(100, unlimited.getInFlight());
+    }
+
+    private void runQueries(int queries, long latencyNanos) {
+        for (int i = 0; i < queries; i++) {
+            limiter.acquire();
+        }
+        for (int i = 0; i < queries; i++) {
+            limiter.onSuccess(latencyNanos);
+        }
+    }
+
+    private static PropertiesHolder properties(Map<String, String> extraProperties) {
+        final Map<String, String> values = new HashMap<>(Map.of(
+                "poolSize", "10", "lookupConcurrencyMinLimit", "2", "lookupConcurrencyMaxWaitInMillis", "50"));
+        values.putAll(extraProperties);
+        return PropertiesHolder.of(values);
+    }
+}
@@ -0,0 +1,63 @@
+package org.extension.dao;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class FileGenerationSourceTest {
+
+    @TempDir
+    Path extensionHome;
+
+    @Test
+    public void csvWithHeaderIsRead() throws IOException {
+        final var file = extensionHome.resolve("generations.csv");
+        Files.writeString(file, "clientid,gen\n# fleet of 2023\n12_old_34,1\n56_new_78,2\n90_old_12 , old\n\n");
+
+        final var source = new FileGenerationSource(file);
+
+        Assertions.assertEquals(CarGeneration.OLD, source.findGeneration("12_old_34"));
+        Assertions.assertEquals(CarGeneration.NEW, source.findGeneration("56_new_78"));
+        Assertions.assertEquals(CarGeneration.OLD, source.findGeneration("90_old_12"));
+        Assertions.assertEquals(CarGeneration.UNKNOWN, source.findGeneration("clientid"));
+        Assertions.assertEquals(CarGeneration.UNKNOWN, source.findGeneration("anything"));
+        Assertions.assertTrue(source.isLocal());
+    }
+
+    @Test
+    public void propertiesAreRead() throws IOException {
+        final var file = extensionHome.resolve("generations.properties");
+        Files.writeString(file, "12_old_34=old\n56_new_78=NEW\n");
+
+        final var source = new FileGenerationSource(file);
+
+        Assertions.assertEquals(CarGeneration.OLD, source.findGeneration("12_old_34"));
+        Assertions.assertEquals(CarGeneration.NEW, source.findGeneration("56_new_78"));
+    }
+
+    @Test
+    public void badLinesAreSkipped() throws IOException {
+        final var file = extensionHome.resolve("generations.csv");
+        Files.writeString(file, "12_old_34,1\nno separator\n56_new_78,electric\n,1\n90_new_12,2\n");
+
+        final var source = new FileGenerationSource(file);
+
+        Assertions.assertEquals(CarGeneration.OLD, source.findGeneration("12_old_34"));
+        Assertions.assertEquals(CarGeneration.UNKNOWN, source.findGeneration("56_new_78"));
+        Assertions.assertEquals(CarGeneration.NEW, source.findGeneration("90_new_12"));
+
+        final var count = new int[1];
+        source.loadAllGenerations((clientId, generation) -> count[0]++);
+        Assertions.assertEquals(2, count[0]);
+    }
+
+    @Test
+    public void missingFileFails() {
+        Assertions.assertThrows(IOException.class,
+                () -> new FileGenerationSource(extensionHome.resolve("missing.csv")));
+    }
+}
@@ -0,0 +1,168 @@
+package org.extension.dao;
+
+import org.extension.config.PropertiesHolder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class GenerationLookupBatcherTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final RecordingCarInfoDAO dao = new RecordingCarInfoDAO();
+
+    @AfterEach
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void fullBatchIsResolvedWithOneQuery() {
+        var batcher = batcher(properties(3, 10_000_000));
+
+        var first = batcher.submit("old");
+        var second = batcher.submit("new");
+        var third = batcher.submit("unknown");
+
+        Assertions.assertEquals(CarGeneration.OLD, first.join());
+        Assertions.assertEquals(CarGeneration.NEW, second.join());
+        Assertions.assertEquals(CarGeneration.UNKNOWN, third.join());
+        Assertions.assertEquals(1, dao.batchQueries.size());
+        Assertions.assertEquals(3, dao.batchQueries.get(0).size());
+    }
+
+    @Test
+    public void partialBatchIsResolvedAfterDelay() throws Exception {
+        var batcher = batcher(properties(64, 1_000));
+
+        var first = batcher.submit("old");
+        var duplicate = batcher.submit("old");
+        var second = batcher.submit("new");
+
+        Assertions.assertEquals(CarGeneration.OLD, first.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(CarGeneration.OLD, duplicate.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(CarGeneration.NEW, second.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(1, dao.batchQueries.size());
+        Assertions.assertEquals(2, dao.batchQueries.get(0).size());
+        Assertions.assertEquals(1, batcher.getBatchCount());
+        Assertions.assertEquals(3, batcher.getLookupCount());
+    }
+
+    @Test
+    public void dbErrorFailsWholeBatch() {
+        var batcher = batcher(properties(2, 10_000_000));
+        dao.failing = true;
+
+        var first = batcher.submit("old");
+        var second = batcher.submit("new");
+
+        var exception = Assertions.assertThrows(CompletionException.class, first::join);
+        Assertions.assertTrue(exception.getCause() instanceof SQLException);
+        Assertions.assertThrows(CompletionException.class, second::join);
+    }
+
+    @Test
+    public void openCircuitFailsBatchWithoutQuery() {
+        var batcher = batcher(properties(1, 1_000, Map.of("circuitBreakerFailureThreshold", "1")));
+        dao.failing = true;
+
+        Assertions.assertThrows(CompletionException.class, batcher.submit("old")::join);
+        var exception = Assertions.assertThrows(CompletionException.class, batcher.submit("old")::join);
+        Assertions.assertTrue(exception.getCause() instanceof CircuitBreakerOpenException);
+        Assertions.assertEquals(1, dao.queries.get());
+    }
+
+    @Test
+    public void flushDoesNotBlockSchedulerWhileLimitIsReached() throws Exception {
+        var propertiesHolder = properties(64, 1_000, Map.of(
+                "lookupConcurrencyMinLimit", "1", "lookupConcurrencyMaxLimit", "1",
+                "lookupConcurrencyMaxWaitInMillis", "60000"));
+        var limiter = new ConcurrencyLimiter(propertiesHolder);
+        var batcher = new GenerationLookupBatcher(dao, new CircuitBreaker(propertiesHolder), limiter,
+                propertiesHolder, scheduler, null);
+        limiter.acquire();
+
+        var lookup = batcher.submit("old");
+        Assertions.assertEquals("free", scheduler.schedule(() -> "free", 10, TimeUnit.MILLISECONDS)
+                .get(5, TimeUnit.SECONDS));
+        Assertions.assertFalse(lookup.isDone());
+
+        limiter.release();
+        Assertions.assertEquals(CarGeneration.OLD, lookup.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void queryExecutorRunsFullBatch() throws Exception {
+        var propertiesHolder = properties(2, 10_000_000);
+        var queryExecutor = Executors.newSingleThreadExecutor();
+        try {
+            var batcher = new GenerationLookupBatcher(dao, new CircuitBreaker(propertiesHolder), propertiesHolder,
+                    scheduler, queryExecutor);
+
+            var first = batcher.submit("old");
+            var second = batcher.submit("new");
+
+            Assertions.assertEquals(CarGeneration.OLD, first.get(5, TimeUnit.SECONDS));
+            Assertions.assertEquals(CarGeneration.NEW, second.get(5, TimeUnit.SECONDS));
+            Assertions.assertNotEquals(Thread.currentThread(), dao.queryThreads.get(0));
+        } finally {
+            queryExecutor.shutdownNow();
+        }
+    }
+
+    private GenerationLookupBatcher batcher(PropertiesHolder propertiesHolder) {
+        return new GenerationLookupBatcher(dao, new CircuitBreaker(propertiesHolder), propertiesHolder, scheduler);
+    }
+
+    private static PropertiesHolder properties(int batchSize, long delayMicros) {
+        return properties(batchSize, delayMicros, Map.of());
+    }
+
+    private static PropertiesHolder properties(int batchSize, long delayMicros, Map<String, String> extraProperties) {
+        final Map<String, String> values = new HashMap<>(extraProperties);
+        values.put("lookupBatchSize", String.valueOf(batchSize));
+        values.put("lookupBatchDelayInMicros", String.valueOf(delayMicros));
+        return PropertiesHolder.of(values);
+    }
+
+    private static class RecordingCarInfoDAO extends CarInfoDAO {
+        private final Map<String, CarGeneration> generations = Map.of("old", CarGeneration.OLD, "new", CarGeneration.NEW);
+        private final List<List<String>> batchQueries = new CopyOnWriteArrayList<>();
+        private final AtomicInteger queries = new AtomicInteger();
+        private volatile boolean failing;
+        private final List<Thread> queryThreads = new CopyOnWriteArrayList<>();
+
+        @Override
+        public CarGeneration findGeneration(String clientId) throws SQLException {
+            queries.incrementAndGet();
+            if (failing) {
+                throw new SQLException("DB is down");
+            }
+            return generations.getOrDefault(clientId, CarGeneration.UNKNOWN);
+        }
+
+        @Override
+        public Map<String, CarGeneration> findGenerations(Collection<String> clientIds) throws SQLException {
+            batchQueries.add(new ArrayList<>(clientIds));
+            queryThreads.add(Thread.currentThread());
+            if (failing) {
+                throw new SQLException("DB is down");
+            }
+            var result = new HashMap<String, CarGeneration>();
+            clientIds.forEach(clientId -> result.put(clientId, generations.getOrDefault(clientId, CarGeneration.UNKNOWN)));
+            return result;
+        }
+    }
+}
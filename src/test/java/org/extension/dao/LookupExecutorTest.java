@@ -0,0 +1,72 @@
+package org.extension.dao;
+
+import org.extension.config.PropertiesHolder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class LookupExecutorTest {
+
+    private LookupExecutor lookupExecutor;
+    private final CountDownLatch blockLookups = new CountDownLatch(1);
+
+    @AfterEach
+    public void tearDown() {
+        blockLookups.countDown();
+        if (lookupExecutor != null) {
+            lookupExecutor.shutDown();
+        }
+    }
+
+    @Test
+    public void lookupsBeyondQueueAreRejected() throws Exception {
+        lookupExecutor = new LookupExecutor(PropertiesHolder.of(Map.of("lookupThreads", "1", "lookupQueueSize", "2")));
+
+        var started = new CountDownLatch(1);
+        lookupExecutor.execute(() -> {
+            started.countDown();
+            awaitUnblocked();
+        });
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+        lookupExecutor.execute(this::awaitUnblocked);
+        lookupExecutor.execute(this::awaitUnblocked);
+
+        Assertions.assertThrows(RejectedExecutionException.class, () -> lookupExecutor.execute(this::awaitUnblocked));
+        Assertions.assertEquals(1, lookupExecutor.getActiveCount());
+        Assertions.assertEquals(2, lookupExecutor.getQueueSize());
+        Assertions.assertEquals(1, lookupExecutor.getRejectedCount());
+    }
+
+    @Test
+    public void virtualThreadsAreBoundedToo() throws Exception {
+        // falls back to a thread pool on JVMs without virtual threads
+        lookupExecutor = new LookupExecutor(PropertiesHolder.of(
+                Map.of("lookupExecutor", "virtual", "lookupThreads", "1", "lookupQueueSize", "1")));
+
+        var started = new CountDownLatch(1);
+        lookupExecutor.execute(() -> {
+            started.countDown();
+            awaitUnblocked();
+        });
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        Assertions.assertThrows(RejectedExecutionException.class, () -> {
+            lookupExecutor.execute(this::awaitUnblocked);
+            lookupExecutor.execute(this::awaitUnblocked);
+        });
+        Assertions.assertEquals(1, lookupExecutor.getRejectedCount());
+    }
+
+    private void awaitUnblocked() {
+        try {
+            blockLookups.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
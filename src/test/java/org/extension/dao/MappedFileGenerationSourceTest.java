@@ -0,0 +1,71 @@
+package org.extension.dao;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+public class MappedFileGenerationSourceTest {
+
+    @TempDir
+    Path extensionHome;
+
+    @Test
+    public void writtenGenerationsAreFound() throws IOException {
+        final var file = extensionHome.resolve("generations.bin");
+        final int written = MappedFileGenerationSource.write(file, consumer -> {
+            for (int i = 0; i < 1000; i++) {
+                consumer.accept("car-" + i, i % 3 == 0 ? CarGeneration.OLD : CarGeneration.NEW);
+            }
+            consumer.accept("car-1", CarGeneration.OLD);
+            consumer.accept("car-2", CarGeneration.UNKNOWN);
+            consumer.accept("äöü-car", CarGeneration.OLD);
+        });
+        Assertions.assertEquals(1000, written);
+
+        final var source = new MappedFileGenerationSource(file);
+
+        Assertions.assertEquals(CarGeneration.OLD, source.findGeneration("car-0"));
+        Assertions.assertEquals(CarGeneration.OLD, source.findGeneration("car-1"));
+        Assertions.assertEquals(CarGeneration.UNKNOWN, source.findGeneration("car-2"));
+        Assertions.assertEquals(CarGeneration.NEW, source.findGeneration("car-998"));
+        Assertions.assertEquals(CarGeneration.OLD, source.findGeneration("äöü-car"));
+        Assertions.assertEquals(CarGeneration.UNKNOWN, source.findGeneration("car-1000"));
+        Assertions.assertEquals(CarGeneration.UNKNOWN, source.findGeneration(""));
+    }
+
+    @Test
+    public void allGenerationsAreLoaded() throws IOException {
+        final var file = extensionHome.resolve("generations.bin");
+        MappedFileGenerationSource.write(file, consumer -> {
+            consumer.accept("12_old_34", CarGeneration.OLD);
+            consumer.accept("56_new_78", CarGeneration.NEW);
+        });
+
+        final Map<String, CarGeneration> loaded = new HashMap<>();
+        new MappedFileGenerationSource(file).loadAllGenerations(loaded::put);
+
+        Assertions.assertEquals(Map.of("12_old_34", CarGeneration.OLD, "56_new_78", CarGeneration.NEW), loaded);
+    }
+
+    @Test
+    public void emptyFileIsValid() throws IOException {
+        final var file = extensionHome.resolve("generations.bin");
+        MappedFileGenerationSource.write(file, consumer -> { });
+
+        Assertions.assertEquals(CarGeneration.UNKNOWN, new MappedFileGenerationSource(file).findGeneration("car"));
+    }
+
+    @Test
+    public void otherFilesAreRejected() throws IOException {
+        final var file = extensionHome.resolve("generations.csv");
+        Files.writeString(file, "12_old_34,1\n");
+
+        Assertions.assertThrows(IOException.class, () -> new MappedFileGenerationSource(file));
+    }
+}
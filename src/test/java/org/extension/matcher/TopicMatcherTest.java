@@ -1,10 +1,13 @@
 package org.extension.matcher;
 
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.ValueSource;
 
+import java.util.List;
+
 public class TopicMatcherTest {
 
     private final TopicMatcher matcherUnderTest = new TopicMatcher();
@@ -54,4 +57,32 @@ public class TopicMatcherTest {
         Assertions.assertNull(matcherUnderTest.getClientIfMatchCommand(topic));
         Assertions.assertNull(matcherUnderTest.getClientIfMatchTemperature(topic));
     }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"fancy-cars/temperature", "fancy-cars/a\nb/temperature", "fancy-cars/a/temperatures", "fancy-cars"})
+    public void malformedTopicToNull(String topic) {
+
+        Assertions.assertNull(matcherUnderTest.match(topic));
+    }
+
+    @Test
+    public void clientIdMayContainSlash() {
+        var match = matcherUnderTest.match("fancy-cars/fleet/42/temperature");
+
+        Assertions.assertNotNull(match);
+        Assertions.assertEquals(TopicMatcher.TEMPERATURE, match.getRoute());
+        Assertions.assertEquals("fleet/42", match.getClientId());
+        Assertions.assertEquals(11, match.getClientIdStart());
+        Assertions.assertEquals(19, match.getClientIdEnd());
+    }
+
+    @Test
+    public void configuredRoutesAreMatched() {
+        var customMatcher = new TopicMatcher("cars", List.of("speed", "command"));
+
+        Assertions.assertEquals("speed", customMatcher.match("cars/1234/speed").getRoute());
+        Assertions.assertEquals("1234", customMatcher.match("cars/1234/command").getClientId());
+        Assertions.assertNull(customMatcher.match("cars/1234/temperature"));
+        Assertions.assertNull(customMatcher.match("fancy-cars/1234/speed"));
+    }
 }
@@ -0,0 +1,45 @@
+package org.extension.transformer;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class BackendPayloadTransformerTest {
+
+    private final BackendPayloadTransformer transformerUnderTest = new BackendPayloadTransformer();
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "{\"command\": \"open\", \"subject\": \"door\"}|open door",
+            "{\"command\": \"explode\"}|'explode '",
+            "{\"command\": \"\", \"subject\": \"anything\"}|' anything'",
+            "{\"subject\": \"door\", \"other\": [1, {\"command\": \"no\"}], \"command\": \"close\"}|close door",
+            "{\"command\": 1.50, \"subject\": true}|1.50 true",
+            "{\"command\": null, \"subject\": \"door\"}|' door'",
+            "{\"command\": \"a\", \"command\": \"b\"}|'b '",
+            "{command: open, subject: trunk}|open trunk",
+            "{}|' '"
+    })
+    public void transformCommand(String original, String expected) {
+
+        var result = transformerUnderTest.transformPayload(utf8(original));
+
+        Assertions.assertTrue(result.isPresent());
+        Assertions.assertEquals(expected, StandardCharsets.UTF_8.decode(result.get()).toString());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "null", "open door", "[]", "{\"command\": {}}", "{} {}", "{\"command\": \"open\"", "{}/*c*/"})
+    public void malformedJsonIsRejected(String original) {
+
+        Assertions.assertTrue(transformerUnderTest.transformPayload(utf8(original)).isEmpty());
+    }
+
+    private static ByteBuffer utf8(String value) {
+        return ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
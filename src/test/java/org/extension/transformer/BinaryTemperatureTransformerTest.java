@@ -0,0 +1,75 @@
+package org.extension.transformer;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+public class BinaryTemperatureTransformerTest {
+
+    private final BinaryTemperatureTransformer transformerUnderTest = new BinaryTemperatureTransformer();
+
+    @Test
+    public void oldGenerationReadingIsEncoded() {
+        assertEncoded(BinaryTemperatureTransformer.CELSIUS, 21.5f, transform("21.5°C"));
+        assertEncoded(BinaryTemperatureTransformer.FAHRENHEIT, -10f, transform("-10.0°F"));
+        assertEncoded(BinaryTemperatureTransformer.UNKNOWN_UNIT, 273f, transform("273°K"));
+    }
+
+    @Test
+    public void newGenerationReadingIsEncoded() {
+        assertEncoded(BinaryTemperatureTransformer.CELSIUS, 21.5f,
+                transform("{ \"temperature\": \"21.5\", \"unit\": \"celsius\" }"));
+        assertEncoded(BinaryTemperatureTransformer.FAHRENHEIT, 3f,
+                transform(" {\"unit\": \"fahrenheit\", \"temperature\": 3, \"extra\": [1, 2]}"));
+        assertEncoded(BinaryTemperatureTransformer.UNKNOWN_UNIT, 0f,
+                transform("{ \"temperature\": \"0\", \"unit\": \"\" }"));
+    }
+
+    @Test
+    public void readingWithoutNumberIsNotEncoded() {
+        Assertions.assertTrue(transform("warm°C").isEmpty());
+        Assertions.assertTrue(transform("21.5").isEmpty());
+        Assertions.assertTrue(transform("{ \"unit\": \"celsius\" }").isEmpty());
+        Assertions.assertTrue(transform("{ \"temperature\": true }").isEmpty());
+        Assertions.assertTrue(transform("{ \"temperature\": ").isEmpty());
+    }
+
+    @Test
+    public void readingWhichIsNoPlainDecimalIsNotEncoded() {
+        Assertions.assertTrue(transform("NaN°C").isEmpty());
+        Assertions.assertTrue(transform("-Infinity°C").isEmpty());
+        Assertions.assertTrue(transform("0x1p3°C").isEmpty());
+        Assertions.assertTrue(transform("21f°C").isEmpty());
+        Assertions.assertTrue(transform("21.5d°C").isEmpty());
+        Assertions.assertTrue(transform("2e1°C").isEmpty());
+        Assertions.assertTrue(transform(".5°C").isEmpty());
+        Assertions.assertTrue(transform("21.°C").isEmpty());
+        Assertions.assertTrue(transform("1" + "0".repeat(40) + "°C").isEmpty());
+        Assertions.assertTrue(transform("{ \"temperature\": \"NaN\", \"unit\": \"celsius\" }").isEmpty());
+        Assertions.assertTrue(transform("{ \"temperature\": \"Infinity\", \"unit\": \"celsius\" }").isEmpty());
+        assertEncoded(BinaryTemperatureTransformer.CELSIUS, 21f, transform("+21°C"));
+    }
+
+    @Test
+    public void originalPayloadIsNotConsumed() {
+        final var original = ByteBuffer.wrap("21.5°C".getBytes(StandardCharsets.UTF_8));
+        transformerUnderTest.transformPayload(original);
+        Assertions.assertEquals(0, original.position());
+    }
+
+    private Optional<ByteBuffer> transform(String payload) {
+        return transformerUnderTest.transformPayload(ByteBuffer.wrap(payload.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static void assertEncoded(byte unit, float temperature, Optional<ByteBuffer> encoded) {
+        Assertions.assertTrue(encoded.isPresent());
+        final var buffer = encoded.get();
+        Assertions.assertEquals(BinaryTemperatureTransformer.ENCODED_LENGTH, buffer.remaining());
+        Assertions.assertEquals(BinaryTemperatureTransformer.FORMAT_VERSION, buffer.get(0));
+        Assertions.assertEquals(unit, buffer.get(1));
+        Assertions.assertEquals(temperature, buffer.getFloat(2));
+    }
+}
@@ -0,0 +1,59 @@
+package org.extension.transformer;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class DevicePayloadTransformerTest {
+
+    private final DevicePayloadTransformer transformerUnderTest = new DevicePayloadTransformer();
+
+    @ParameterizedTest
+    @CsvSource(value = {
+            "15.0°C,15.0,celsius",
+            "-10.0°F,-10.0,fahrenheit",
+            "273.0°K,273.0,''",
+            "°C,'',celsius",
+            "21°CC,21,''",
+            "1°C°F,1,celsius",
+            "°°C,'',''",
+            "15°C°,15,celsius",
+            "température 5°F,température 5,fahrenheit"
+    })
+    public void transformTemperature(String original, String temperature, String unit) {
+        var expected = String.format("{ \"temperature\": \"%s\", \"unit\": \"%s\" }", temperature, unit);
+
+        var result = transformerUnderTest.transformPayload(utf8(original));
+
+        Assertions.assertTrue(result.isPresent());
+        Assertions.assertEquals(expected, StandardCharsets.UTF_8.decode(result.get()).toString());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "15", "15°", "15°°", "°", "whatever-bla-bla", "{ \"temperature\": \"15.0\" }"})
+    public void wrongFormatIsRejected(String original) {
+
+        Assertions.assertTrue(transformerUnderTest.transformPayload(utf8(original)).isEmpty());
+    }
+
+    @Test
+    public void payloadPositionIsRespectedAndLeftUntouched() {
+        var payload = ByteBuffer.wrap("xx5°C".getBytes(StandardCharsets.UTF_8));
+        payload.position(2);
+
+        var result = transformerUnderTest.transformPayload(payload.asReadOnlyBuffer());
+
+        Assertions.assertEquals("{ \"temperature\": \"5\", \"unit\": \"celsius\" }",
+                StandardCharsets.UTF_8.decode(result.orElseThrow()).toString());
+        Assertions.assertEquals(2, payload.position());
+    }
+
+    private static ByteBuffer utf8(String value) {
+        return ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,94 @@
+package org.extension.transformer;
+
+import org.extension.config.PropertiesHolder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TemperatureConflatorTest {
+
+    private static final String TOPIC = "fancy-cars/12_old_34/temperature";
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    public void unchangedReadingIsDeliveredOncePerInterval() {
+        final var conflator = conflator(Map.of("conflationIntervalInMillis", "1000"));
+        final var key = TemperatureConflator.key("backend", TOPIC);
+
+        Assertions.assertTrue(conflator.offer(key, utf8("21.5°C")));
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        Assertions.assertFalse(conflator.offer(key, utf8("21.5°C")));
+        Assertions.assertFalse(conflator.offer(key, utf8("21.50°C")));
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        Assertions.assertTrue(conflator.offer(key, utf8("21.5°C")));
+    }
+
+    @Test
+    public void changeBeyondDeltaIsDeliveredRightAway() {
+        final var conflator = conflator(Map.of("conflationIntervalInMillis", "1000", "conflationDelta", "0.5"));
+        final var key = TemperatureConflator.key("backend", TOPIC);
+
+        Assertions.assertTrue(conflator.offer(key, utf8("21.5°C")));
+        Assertions.assertFalse(conflator.offer(key, utf8("21.8°C")));
+        Assertions.assertTrue(conflator.offer(key, utf8("22.1°C")));
+        Assertions.assertTrue(conflator.offer(key, utf8("22.1°F")));
+    }
+
+    @Test
+    public void subscribersAndTopicsAreConflatedSeparately() {
+        final var conflator = conflator(Map.of("conflationIntervalInMillis", "1000"));
+
+        Assertions.assertTrue(conflator.offer(TemperatureConflator.key("backend", TOPIC), utf8("21.5°C")));
+        Assertions.assertTrue(conflator.offer(TemperatureConflator.key("dashboard", TOPIC), utf8("21.5°C")));
+        Assertions.assertTrue(conflator.offer(TemperatureConflator.key(null, TOPIC), utf8("21.5°C")));
+        Assertions.assertTrue(conflator.offer(TemperatureConflator.key("backend", "fancy-cars/56/temperature"),
+                utf8("21.5°C")));
+        Assertions.assertEquals(4, conflator.size());
+    }
+
+    @Test
+    public void unparsableReadingIsAlwaysDelivered() {
+        final var conflator = conflator(Map.of("conflationIntervalInMillis", "1000"));
+        final var key = TemperatureConflator.key("backend", TOPIC);
+
+        Assertions.assertTrue(conflator.offer(key, utf8("warm°C")));
+        Assertions.assertTrue(conflator.offer(key, utf8("warm°C")));
+        Assertions.assertTrue(conflator.offer(key, utf8("21.5")));
+        Assertions.assertTrue(conflator.offer(key, utf8("21.5")));
+    }
+
+    @Test
+    public void oldReadingsAreForgotten() {
+        final var conflator = conflator(Map.of("conflationIntervalInMillis", "1000"));
+        conflator.offer(TemperatureConflator.key("backend", TOPIC), utf8("21.5°C"));
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        conflator.offer(TemperatureConflator.key("dashboard", TOPIC), utf8("21.5°C"));
+
+        Assertions.assertEquals(1, conflator.size());
+    }
+
+    @Test
+    public void disabledByDefault() {
+        final var conflator = conflator(Map.of());
+        final var key = TemperatureConflator.key("backend", TOPIC);
+
+        Assertions.assertFalse(conflator.isEnabled());
+        Assertions.assertTrue(conflator.offer(key, utf8("21.5°C")));
+        Assertions.assertTrue(conflator.offer(key, utf8("21.5°C")));
+    }
+
+    private TemperatureConflator conflator(Map<String, String> properties) {
+        return new TemperatureConflator(PropertiesHolder.of(properties), now::get);
+    }
+
+    private static ByteBuffer utf8(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
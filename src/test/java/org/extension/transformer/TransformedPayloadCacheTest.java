@@ -0,0 +1,111 @@
+package org.extension.transformer;
+
+import org.extension.config.PropertiesHolder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TransformedPayloadCacheTest {
+
+    private final AtomicInteger transformations = new AtomicInteger();
+    private final PayloadTransformer countingTransformer = payload -> {
+        transformations.incrementAndGet();
+        final var text = StandardCharsets.UTF_8.decode(payload.duplicate()).toString();
+        return text.startsWith("bad") ? Optional.empty() : Optional.of(utf8("<" + text + ">"));
+    };
+
+    @Test
+    public void repeatedPayloadIsTransformedOnce() {
+        final var cache = cache(Map.of());
+        final var transformer = cache.memoize(countingTransformer);
+
+        final var first = transformer.transformPayload(utf8("21°C"));
+        final var second = transformer.transformPayload(utf8("21°C"));
+
+        Assertions.assertEquals("<21°C>", text(first));
+        Assertions.assertEquals("<21°C>", text(second));
+        Assertions.assertTrue(second.orElseThrow().isReadOnly());
+        Assertions.assertEquals(1, transformations.get());
+        Assertions.assertEquals(1, cache.getHitCount());
+        Assertions.assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void hitsDoNotShareBufferPosition() {
+        final var transformer = cache(Map.of()).memoize(countingTransformer);
+        transformer.transformPayload(utf8("21°C"));
+
+        final var consumed = transformer.transformPayload(utf8("21°C")).orElseThrow();
+        consumed.position(consumed.limit());
+
+        Assertions.assertEquals("<21°C>", text(transformer.transformPayload(utf8("21°C"))));
+    }
+
+    @Test
+    public void payloadOfWrongFormatIsNotCached() {
+        final var transformer = cache(Map.of()).memoize(countingTransformer);
+
+        Assertions.assertTrue(transformer.transformPayload(utf8("bad")).isEmpty());
+        Assertions.assertTrue(transformer.transformPayload(utf8("bad")).isEmpty());
+        Assertions.assertEquals(2, transformations.get());
+    }
+
+    @Test
+    public void largePayloadIsNotCached() {
+        final var transformer = cache(Map.of("payloadCacheMaxPayloadSize", "4")).memoize(countingTransformer);
+
+        transformer.transformPayload(utf8("12345"));
+        transformer.transformPayload(utf8("12345"));
+
+        Assertions.assertEquals(2, transformations.get());
+    }
+
+    @Test
+    public void cachedBytesAreBounded() {
+        final var cache = cache(Map.of("payloadCacheMaxBytes", "100"));
+        final var transformer = cache.memoize(countingTransformer);
+
+        for (int i = 0; i < 100; i++) {
+            transformer.transformPayload(utf8("payload-" + i));
+        }
+
+        Assertions.assertTrue(cache.getBytes() <= 100);
+        Assertions.assertTrue(cache.getEvictionCount() > 0);
+    }
+
+    @Test
+    public void transformersDoNotShareEntries() {
+        final var cache = cache(Map.of());
+        final var first = cache.memoize(countingTransformer);
+        final var second = cache.memoize(payload -> Optional.of(utf8("other")));
+
+        first.transformPayload(utf8("21°C"));
+
+        Assertions.assertEquals("other", text(second.transformPayload(utf8("21°C"))));
+    }
+
+    @Test
+    public void disabledCacheReturnsTransformer() {
+        final var cache = cache(Map.of("payloadCacheMaxBytes", "0"));
+
+        Assertions.assertFalse(cache.isEnabled());
+        Assertions.assertSame(countingTransformer, cache.memoize(countingTransformer));
+    }
+
+    private static TransformedPayloadCache cache(Map<String, String> properties) {
+        return new TransformedPayloadCache(PropertiesHolder.of(properties));
+    }
+
+    private static String text(Optional<ByteBuffer> payload) {
+        return StandardCharsets.UTF_8.decode(payload.orElseThrow()).toString();
+    }
+
+    private static ByteBuffer utf8(String payload) {
+        return ByteBuffer.wrap(payload.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -2,8 +2,21 @@ CREATE TABLE generation
 (
 id SERIAL PRIMARY KEY,
 clientid VARCHAR(120) NOT NULL UNIQUE,
-gen INTEGER NOT NULL
+gen INTEGER NOT NULL,
+updated_at TIMESTAMPTZ NOT NULL DEFAULT now()
 );
 
+-- the preloaded index polls for rows with a newer updated_at, so every update has to touch it
+CREATE FUNCTION touch_updated_at() RETURNS trigger AS '
+BEGIN
+    NEW.updated_at = now();
+    RETURN NEW;
+END;
+' LANGUAGE plpgsql;
+
+CREATE TRIGGER generation_updated_at
+BEFORE UPDATE ON generation
+FOR EACH ROW EXECUTE FUNCTION touch_updated_at();
+
 INSERT INTO generation(clientid, gen)
-VALUES ('12_old_34',1),('56_new_78',2);
\ No newline at end of file
+VALUES ('12_old_34',1),('56_new_78',2);